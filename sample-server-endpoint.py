@@ -4,11 +4,49 @@ Sample server endpoint for Iron Trials milestone configurations
 This demonstrates how your backend server could serve group-specific milestone configs
 """
 
-from flask import Flask, request, jsonify
+from flask import Flask, Response, request, jsonify
 import json
+import time
+
+# Optional: pip install cbor2 to let clients use the CBOR wire format
+try:
+    import cbor2
+except ImportError:
+    cbor2 = None
 
 app = Flask(__name__)
 
+CBOR = "application/cbor"
+UNSUPPORTED = object()
+
+def read_body():
+    """Decode a JSON or CBOR request body, UNSUPPORTED for other formats such as Smile"""
+    if request.mimetype == CBOR:
+        return cbor2.loads(request.get_data()) if cbor2 else UNSUPPORTED
+    if request.mimetype not in ("application/json", ""):
+        return UNSUPPORTED
+    return request.get_json(silent=True)
+
+def respond(payload):
+    """Encode as CBOR when the client prefers it, JSON otherwise"""
+    if cbor2 and request.accept_mimetypes.best_match([CBOR, "application/json"]) == CBOR:
+        response = Response(cbor2.dumps(payload), mimetype=CBOR)
+    else:
+        response = jsonify(payload)
+    response.headers["Vary"] = "Accept"
+    return response
+
+def unsupported_format():
+    return jsonify({"error": f"Unsupported content type {request.mimetype}"}), 415
+
+def conditional_json(payload):
+    """Answer with an ETag so clients can revalidate, or 304 if theirs still matches"""
+    response = jsonify(payload)
+    response.add_etag()
+    # Cacheable, but clients must check with us before reusing it
+    response.headers["Cache-Control"] = "no-cache"
+    return response.make_conditional(request)
+
 # Sample milestone configurations for different groups
 GROUP_CONFIGS = {
     "test-group": {
@@ -121,7 +159,12 @@ def get_milestones():
         "config": config
     }
     
-    return jsonify(response)
+    return conditional_json(response)
+
+@app.route('/v1/health', methods=['GET', 'HEAD'])
+def health():
+    """Cheap endpoint for clients warming up their connection"""
+    return '', 204
 
 @app.route('/api/iron-trials/groups', methods=['GET'])
 def list_groups():
@@ -154,6 +197,136 @@ def update_milestones(group_id):
         "groupId": group_id
     })
 
+# Events uploaded by plugins, newest last, kept in memory for local testing
+GROUP_EVENTS = {}
+# Ids of the stored events per group, the client sends an event again if it missed the answer
+GROUP_EVENT_IDS = {}
+
+def store_event(group_id, event):
+    """Validate and store one uploaded event, returning whether it was accepted.
+    The event id is an idempotency key: a repeated id is accepted again but stored once."""
+    if not isinstance(event, dict) or "kind" not in event:
+        return False
+    event_id = event.get("id")
+    if event_id is not None:
+        seen = GROUP_EVENT_IDS.setdefault(group_id, set())
+        if event_id in seen:
+            return True
+        seen.add(event_id)
+    GROUP_EVENTS.setdefault(group_id, []).append(event)
+    return True
+
+@app.route('/v1/groups/<group_id>/events', methods=['POST'])
+def post_event(group_id):
+    """Store a single event"""
+    event = read_body()
+    if event is UNSUPPORTED:
+        return unsupported_format()
+    if not store_event(group_id, event):
+        return jsonify({"error": "Invalid event"}), 400
+    return jsonify({"accepted": True})
+
+@app.route('/v1/groups/<group_id>/events/batch', methods=['POST'])
+def post_event_batch(group_id):
+    """Store a batch of events, answering with one result per event in the same order"""
+    events = read_body()
+    if events is UNSUPPORTED:
+        return unsupported_format()
+    if not isinstance(events, list):
+        return jsonify({"error": "Expected an array of events"}), 400
+    return respond({"results": [store_event(group_id, event) for event in events]})
+
+@app.route('/v1/groups/<group_id>/events', methods=['GET'])
+def get_events_since(group_id):
+    """Return the events stored after the given cursor, plus the cursor to continue from"""
+    events = GROUP_EVENTS.get(group_id, [])
+    # The cursor is opaque to clients; here it is simply the number of events already seen
+    since = request.args.get('since')
+    if since is None:
+        start = max(0, len(events) - 50)
+    else:
+        try:
+            start = min(max(0, int(since)), len(events))
+        except ValueError:
+            return jsonify({"error": "Invalid cursor"}), 400
+
+    # Long poll: with ?wait=<seconds>, hold the request until something newer arrives
+    deadline = time.time() + min(float(request.args.get('wait', 0)), 30)
+    while start >= len(GROUP_EVENTS.get(group_id, [])) and time.time() < deadline:
+        time.sleep(0.25)
+
+    events = GROUP_EVENTS.get(group_id, [])
+    page = events[start:start + 100]
+    return respond({"events": page, "cursor": str(start + len(page))})
+
+# Points and bingo tile changes waiting to be pushed, newest last
+GROUP_PUSH = {}
+
+@app.route('/v1/groups/<group_id>/stream', methods=['GET'])
+def stream_group(group_id):
+    """Server-Sent Events stream of new events, points changes and tile completions.
+    Event ids are the same cursors as /events, so Last-Event-ID resumes a dropped stream."""
+    resume = request.headers.get('Last-Event-ID')
+    try:
+        next_event = int(resume) if resume is not None else len(GROUP_EVENTS.get(group_id, []))
+    except ValueError:
+        next_event = 0
+    next_push = len(GROUP_PUSH.get(group_id, []))
+
+    def generate():
+        nonlocal next_event, next_push
+        last_write = time.time()
+        while True:
+            events = GROUP_EVENTS.get(group_id, [])
+            while next_event < len(events):
+                next_event += 1
+                yield f"id: {next_event}\nevent: event\ndata: {json.dumps(events[next_event - 1])}\n\n"
+                last_write = time.time()
+
+            pushes = GROUP_PUSH.get(group_id, [])
+            while next_push < len(pushes):
+                kind, payload = pushes[next_push]
+                next_push += 1
+                yield f"event: {kind}\ndata: {json.dumps(payload)}\n\n"
+                last_write = time.time()
+
+            # Heartbeat comment so clients can tell an idle stream from a dead one
+            if time.time() - last_write >= 15:
+                yield ": ping\n\n"
+                last_write = time.time()
+            time.sleep(0.2)
+
+    return Response(generate(), mimetype='text/event-stream', headers={"Cache-Control": "no-store"})
+
+@app.route('/v1/groups/<group_id>/push/points', methods=['POST'])
+def push_points(group_id):
+    """Test helper: push a points change, e.g. {"playerName": "Zezima", "points": 120}"""
+    GROUP_PUSH.setdefault(group_id, []).append(("points", request.get_json()))
+    return jsonify({"queued": True})
+
+@app.route('/v1/groups/<group_id>/push/tile', methods=['POST'])
+def push_tile(group_id):
+    """Test helper: push a tile completion, e.g. {"playerName": "Zezima", "x": 1, "y": 2}"""
+    GROUP_PUSH.setdefault(group_id, []).append(("tile", request.get_json()))
+    return jsonify({"queued": True})
+
+# Latest XP summaries per group and player, kept in memory for local testing
+GROUP_XP = {}
+
+@app.route('/v1/groups/<group_id>/xp', methods=['POST'])
+def post_xp_summary(group_id):
+    """Store a periodic XP summary uploaded by a plugin"""
+    summary = read_body()
+    if summary is UNSUPPORTED:
+        return unsupported_format()
+    if not summary or "skills" not in summary:
+        return jsonify({"error": "No XP summary provided"}), 400
+
+    player = summary.get("playerName", "unknown")
+    GROUP_XP.setdefault(group_id, {})[player] = summary
+
+    return jsonify({"groupId": group_id, "playerName": player, "skills": len(summary["skills"])})
+
 if __name__ == '__main__':
     print("Iron Trials Milestone Server")
     print("Available groups:", list(GROUP_CONFIGS.keys()))
@@ -161,6 +334,10 @@ if __name__ == '__main__':
     print("  GET /api/iron-trials/milestones?groupId=test-group")
     print("  GET /api/iron-trials/milestones?groupId=hardcore-group")
     print("  GET /api/iron-trials/milestones?groupId=casual-group")
+    print("  POST /v1/groups/test-group/events/batch")
+    print("  GET /v1/groups/test-group/events?since=0&wait=25")
+    print("  GET /v1/groups/test-group/stream")
+    print("  POST /v1/groups/test-group/xp")
     print("\nStarting server on http://localhost:5000")
     
-    app.run(debug=True, host='0.0.0.0', port=5000) 
\ No newline at end of file
+    app.run(debug=True, host='0.0.0.0', port=5000, threaded=True) 
\ No newline at end of file
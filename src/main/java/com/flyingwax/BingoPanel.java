@@ -16,6 +16,8 @@ public class BingoPanel extends JPanel
 {
     private final IronTrials plugin;
     private final JPanel contentPanel;
+    // Boards in display order, kept so pushed tile completions can be applied
+    private final List<BingoData> boards = new ArrayList<>();
 
     public BingoPanel(IronTrials plugin)
     {
@@ -46,46 +48,93 @@ public class BingoPanel extends JPanel
     public void updateData(List<BingoData> bingoBoards)
     {
         log.info("Updating bingo panel with {} boards", bingoBoards != null ? bingoBoards.size() : 0);
+        clearBoards();
+        if (bingoBoards != null)
+        {
+            bingoBoards.forEach(this::addBoard);
+        }
+        finishBoards(boards.size());
+    }
+
+    public void clearBoards()
+    {
         contentPanel.removeAll();
-        
-        if (bingoBoards == null || bingoBoards.isEmpty())
+        boards.clear();
+    }
+
+    // Inserts one board at its sorted position, so boards can be shown as they are decoded
+    public void addBoard(BingoData board)
+    {
+        int index = 0;
+        while (index < boards.size() && compareBoards(boards.get(index).getPlayerName(), board.getPlayerName()) <= 0)
         {
-            log.warn("No bingo data available");
-            contentPanel.add(new JLabel("No bingo data available"));
-            contentPanel.revalidate();
-            contentPanel.repaint();
-            return;
+            index++;
         }
 
-        // Get the logged-in player's name
-        String loggedInPlayer = plugin.getConfig().playerName();
-        
-        // Sort boards: logged-in player first, then alphabetically
-        List<BingoData> sortedBoards = new ArrayList<>(bingoBoards);
-        sortedBoards.sort((a, b) -> {
-            String playerA = a.getPlayerName();
-            String playerB = b.getPlayerName();
-            
-            // Logged-in player goes first
-            if (playerA.equals(loggedInPlayer)) return -1;
-            if (playerB.equals(loggedInPlayer)) return 1;
-            
-            // Then sort alphabetically
-            return playerA.compareToIgnoreCase(playerB);
-        });
-
-        // Create board panels
-        for (BingoData board : sortedBoards)
+        boards.add(index, board);
+        // Each board is followed by a spacer
+        contentPanel.add(createBoardPanel(board), index * 2);
+        contentPanel.add(Box.createVerticalStrut(10), index * 2 + 1); // Reduced spacing between boards
+        contentPanel.revalidate();
+        contentPanel.repaint();
+    }
+
+    // Marks a tile completed and redraws only its board
+    public void completeTile(TileCompletion completion)
+    {
+        for (int index = 0; index < boards.size(); index++)
         {
-            JPanel boardPanel = createBoardPanel(board);
-            contentPanel.add(boardPanel);
-            contentPanel.add(Box.createVerticalStrut(10)); // Reduced spacing between boards
+            BingoData board = boards.get(index);
+            if (!board.getPlayerName().equals(completion.getPlayerName())
+                || (completion.getBoardId() != null && !completion.getBoardId().equals(board.getId()))
+                || board.getTiles() == null)
+            {
+                continue;
+            }
+
+            for (BingoTile tile : board.getTiles())
+            {
+                if (tile.getX() == completion.getX() && tile.getY() == completion.getY())
+                {
+                    tile.setCompleted(true);
+                    tile.setCompletedBy(completion.getCompletedBy());
+                    tile.setCompletedAt(completion.getCompletedAt());
+
+                    contentPanel.remove(index * 2);
+                    contentPanel.add(createBoardPanel(board), index * 2);
+                    contentPanel.revalidate();
+                    contentPanel.repaint();
+                    return;
+                }
+            }
+        }
+    }
+
+    public void finishBoards(int count)
+    {
+        if (count == 0)
+        {
+            log.warn("No bingo data available");
+            clearBoards();
+            contentPanel.add(new JLabel("No bingo data available"));
         }
 
         contentPanel.revalidate();
         contentPanel.repaint();
     }
 
+    private int compareBoards(String playerA, String playerB)
+    {
+        String loggedInPlayer = plugin.getConfig().playerName();
+
+        // Logged-in player goes first
+        if (playerA.equals(loggedInPlayer)) return -1;
+        if (playerB.equals(loggedInPlayer)) return 1;
+
+        // Then sort alphabetically
+        return playerA.compareToIgnoreCase(playerB);
+    }
+
     private JPanel createBoardPanel(BingoData board)
     {
         JPanel boardPanel = new JPanel();
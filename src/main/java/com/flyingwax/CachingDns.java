@@ -0,0 +1,68 @@
+package com.flyingwax;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Keeps successful lookups for a few minutes, longer than the JVM's own 30 second cache, so
+// a connection opened after a quiet spell does not pay for DNS again. If a refresh fails
+// the previous addresses are used until a lookup succeeds, which rides out resolver hiccups.
+@Slf4j
+public class CachingDns implements Dns
+{
+    private final long ttlMs;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public CachingDns(long ttlMs)
+    {
+        this.ttlMs = ttlMs;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException
+    {
+        Entry entry = entries.get(hostname);
+        if (entry != null && System.currentTimeMillis() < entry.expiresAt)
+        {
+            return entry.addresses;
+        }
+
+        try
+        {
+            return resolve(hostname);
+        }
+        catch (UnknownHostException e)
+        {
+            if (entry != null)
+            {
+                log.debug("Lookup of {} failed, using stale addresses", hostname);
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    private List<InetAddress> resolve(String hostname) throws UnknownHostException
+    {
+        List<InetAddress> addresses = Dns.SYSTEM.lookup(hostname);
+        entries.put(hostname, new Entry(addresses, System.currentTimeMillis() + ttlMs));
+        return addresses;
+    }
+
+    private static class Entry
+    {
+        private final List<InetAddress> addresses;
+        private final long expiresAt;
+
+        Entry(List<InetAddress> addresses, long expiresAt)
+        {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
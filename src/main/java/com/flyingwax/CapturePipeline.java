@@ -0,0 +1,182 @@
+package com.flyingwax;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.Skill;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Hands raw game events from the client thread to a dedicated capture worker.
+// The client thread (the only producer) copies values into a preallocated ring of
+// CaptureRecords and publishes them by advancing a sequence counter; the worker (the only
+// consumer) drains the ring and runs classification, feed updates and network dispatch.
+// When the ring is full the newest record is dropped rather than making the client wait.
+@Slf4j
+public class CapturePipeline
+{
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final CaptureRecord[] ring;
+    private final int mask;
+    private final Consumer<CaptureRecord> handler;
+
+    // Next sequence to write (producer) and next sequence to read (consumer)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    // Producer-local copy of tail, refreshed only when the ring looks full
+    private long cachedTail;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped;
+
+    private volatile boolean running;
+    private volatile boolean parked;
+    private volatile Thread worker;
+
+    public CapturePipeline(int capacity, Consumer<CaptureRecord> handler)
+    {
+        if (Integer.bitCount(capacity) != 1)
+        {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+
+        this.ring = new CaptureRecord[capacity];
+        for (int i = 0; i < capacity; i++)
+        {
+            ring[i] = new CaptureRecord();
+        }
+        this.mask = capacity - 1;
+        this.handler = handler;
+    }
+
+    public void start()
+    {
+        running = true;
+        worker = new Thread(this::run, "iron-trials-capture");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void stop()
+    {
+        running = false;
+        if (worker != null)
+        {
+            LockSupport.unpark(worker);
+            try
+            {
+                worker.join(TimeUnit.SECONDS.toMillis(1));
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+        }
+    }
+
+    // Called on the client thread
+    public boolean offerChat(ChatMessageType type, String message, int tick)
+    {
+        CaptureRecord record = claim();
+        if (record == null)
+        {
+            return false;
+        }
+        record.setChat(type, message, tick);
+        publish();
+        return true;
+    }
+
+    // Called on the client thread
+    public boolean offerStat(Skill skill, int level, int previousLevel, int xp, int xpGained, int tick)
+    {
+        CaptureRecord record = claim();
+        if (record == null)
+        {
+            return false;
+        }
+        record.setStat(skill, level, previousLevel, xp, xpGained, tick);
+        publish();
+        return true;
+    }
+
+    public long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    private CaptureRecord claim()
+    {
+        long seq = head.get();
+        if (seq - cachedTail >= ring.length)
+        {
+            cachedTail = tail.get();
+            if (seq - cachedTail >= ring.length)
+            {
+                dropped.incrementAndGet();
+                return null;
+            }
+        }
+        return ring[(int) (seq & mask)];
+    }
+
+    private void publish()
+    {
+        // A volatile write here pairs with the worker's parked flag so a wakeup is never missed
+        head.set(head.get() + 1);
+        if (parked)
+        {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private void run()
+    {
+        while (running)
+        {
+            long seq = tail.get();
+            long available = head.get();
+            if (seq == available)
+            {
+                parked = true;
+                // Re-check after announcing we are about to park so a publish is not missed
+                if (head.get() == available && running)
+                {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+                reportDrops();
+                continue;
+            }
+
+            for (; seq < available; seq++)
+            {
+                CaptureRecord record = ring[(int) (seq & mask)];
+                try
+                {
+                    handler.accept(record);
+                }
+                catch (Exception e)
+                {
+                    log.warn("Error processing captured {} event", record.getType(), e);
+                }
+                record.clear();
+                tail.lazySet(seq + 1);
+            }
+        }
+    }
+
+    private void reportDrops()
+    {
+        long total = dropped.get();
+        if (total != reportedDropped)
+        {
+            log.warn("Capture queue full, dropped {} events", total - reportedDropped);
+            reportedDropped = total;
+        }
+    }
+}
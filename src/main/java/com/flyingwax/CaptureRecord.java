@@ -0,0 +1,99 @@
+package com.flyingwax;
+
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.Skill;
+
+// One preallocated slot of the CapturePipeline ring. The client thread copies the raw
+// values of a game event into it, the capture worker reads them back. A record is only
+// valid inside the handler callback; its fields are overwritten once the slot is reused.
+public class CaptureRecord
+{
+    public enum Type
+    {
+        CHAT,
+        STAT
+    }
+
+    private Type type;
+    private int tick;
+
+    private ChatMessageType chatType;
+    private String message;
+
+    private Skill skill;
+    private int level;
+    private int previousLevel;
+    private int xp;
+    private int xpGained;
+
+    void setChat(ChatMessageType chatType, String message, int tick)
+    {
+        this.type = Type.CHAT;
+        this.chatType = chatType;
+        this.message = message;
+        this.tick = tick;
+    }
+
+    void setStat(Skill skill, int level, int previousLevel, int xp, int xpGained, int tick)
+    {
+        this.type = Type.STAT;
+        this.skill = skill;
+        this.level = level;
+        this.previousLevel = previousLevel;
+        this.xp = xp;
+        this.xpGained = xpGained;
+        this.tick = tick;
+    }
+
+    void clear()
+    {
+        // Drop the message reference so the ring does not keep old chat lines alive
+        message = null;
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public int getTick()
+    {
+        return tick;
+    }
+
+    public ChatMessageType getChatType()
+    {
+        return chatType;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public Skill getSkill()
+    {
+        return skill;
+    }
+
+    public int getLevel()
+    {
+        return level;
+    }
+
+    // Level before this change, 0 when the snapshot had not seen the skill yet
+    public int getPreviousLevel()
+    {
+        return previousLevel;
+    }
+
+    public int getXp()
+    {
+        return xp;
+    }
+
+    public int getXpGained()
+    {
+        return xpGained;
+    }
+}
@@ -0,0 +1,112 @@
+package com.flyingwax;
+
+import java.util.Arrays;
+
+// Reusable result of ChatTemplateMatcher.match(). Fields are kept as offsets into the
+// original message and only turned into Strings when asked for, so a caller that owns
+// one instance can classify chat lines without allocating.
+public class ChatMatch
+{
+    private static final int MAX_FIELDS = 4;
+
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+    private final long[] numbers = new long[MAX_FIELDS];
+    // Scratch space for the matcher's trie walk, grown to the longest template prefix
+    private int[] prefixEnds = new int[64];
+    private String message;
+    private ChatTemplate template;
+
+    void reset(String message)
+    {
+        this.message = message;
+        this.template = null;
+    }
+
+    void setTemplate(ChatTemplate template)
+    {
+        this.template = template;
+    }
+
+    void setField(int index, int start, int end, long number)
+    {
+        starts[index] = start;
+        ends[index] = end;
+        numbers[index] = number;
+    }
+
+    void pushPrefixEnd(int depth, int pos)
+    {
+        if (depth == prefixEnds.length)
+        {
+            prefixEnds = Arrays.copyOf(prefixEnds, depth * 2);
+        }
+        prefixEnds[depth] = pos;
+    }
+
+    int getPrefixEnd(int depth)
+    {
+        return prefixEnds[depth];
+    }
+
+    static boolean fits(ChatTemplate template)
+    {
+        return template.getFieldCount() <= MAX_FIELDS;
+    }
+
+    public ChatTemplate getTemplate()
+    {
+        return template;
+    }
+
+    public EventKind getKind()
+    {
+        return template != null ? template.getKind() : null;
+    }
+
+    public boolean hasField(String field)
+    {
+        return template != null && template.fieldIndex(field) != -1;
+    }
+
+    public long getNumber(String field)
+    {
+        int index = template != null ? template.fieldIndex(field) : -1;
+        return index != -1 ? numbers[index] : 0;
+    }
+
+    // Field text with any <col> style tags removed and surrounding whitespace trimmed
+    public String getText(String field)
+    {
+        int index = template != null ? template.fieldIndex(field) : -1;
+        if (index == -1)
+        {
+            return null;
+        }
+
+        int start = starts[index];
+        int end = ends[index];
+        int tag = message.indexOf('<', start);
+        if (tag == -1 || tag >= end)
+        {
+            return message.substring(start, end).trim();
+        }
+
+        StringBuilder text = new StringBuilder(end - start);
+        for (int i = start; i < end; i++)
+        {
+            char c = message.charAt(i);
+            if (c == '<')
+            {
+                int close = message.indexOf('>', i);
+                if (close != -1 && close < end)
+                {
+                    i = close;
+                    continue;
+                }
+            }
+            text.append(c);
+        }
+        return text.toString().trim();
+    }
+}
@@ -0,0 +1,207 @@
+package com.flyingwax;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// A game message pattern such as "Your {boss} kill count is: {n}." split into literal
+// segments and typed fields. Fields named in NUMBER_FIELDS are parsed as integers, any
+// other field captures text up to the literal that follows it.
+public class ChatTemplate
+{
+    private static final Set<String> NUMBER_FIELDS = Set.of("n", "value", "quantity");
+
+    private final EventKind kind;
+    private final String pattern;
+    // literals[0] precedes the first field, literals[i] follows fields[i - 1]
+    private final String[] literals;
+    private final String[] fields;
+    private final boolean[] numeric;
+
+    public ChatTemplate(EventKind kind, String pattern)
+    {
+        this.kind = kind;
+        this.pattern = pattern;
+
+        List<String> literalList = new ArrayList<>();
+        List<String> fieldList = new ArrayList<>();
+        int pos = 0;
+        while (true)
+        {
+            int open = pattern.indexOf('{', pos);
+            if (open == -1)
+            {
+                literalList.add(pattern.substring(pos));
+                break;
+            }
+            int close = pattern.indexOf('}', open);
+            if (close == -1)
+            {
+                throw new IllegalArgumentException("Unclosed field in chat template: " + pattern);
+            }
+            if (open == pos && !fieldList.isEmpty())
+            {
+                throw new IllegalArgumentException("Adjacent fields in chat template: " + pattern);
+            }
+            literalList.add(pattern.substring(pos, open));
+            fieldList.add(pattern.substring(open + 1, close));
+            pos = close + 1;
+        }
+
+        if (literalList.get(0).isEmpty())
+        {
+            throw new IllegalArgumentException("Chat template must start with literal text: " + pattern);
+        }
+        if (pattern.indexOf('<') != -1)
+        {
+            throw new IllegalArgumentException("Chat templates match tag-stripped text: " + pattern);
+        }
+
+        literals = literalList.toArray(new String[0]);
+        fields = fieldList.toArray(new String[0]);
+        numeric = new boolean[fields.length];
+        for (int i = 0; i < fields.length; i++)
+        {
+            numeric[i] = NUMBER_FIELDS.contains(fields[i]);
+        }
+    }
+
+    public EventKind getKind()
+    {
+        return kind;
+    }
+
+    public String getPattern()
+    {
+        return pattern;
+    }
+
+    String getPrefix()
+    {
+        return literals[0];
+    }
+
+    int getFieldCount()
+    {
+        return fields.length;
+    }
+
+    int fieldIndex(String field)
+    {
+        for (int i = 0; i < fields.length; i++)
+        {
+            if (fields[i].equals(field))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Matches the remainder of the message after the prefix, which the trie has already
+    // consumed up to pos. Fills the field offsets and numbers of out on success.
+    boolean matchFields(String message, int pos, ChatMatch out)
+    {
+        for (int i = 0; i < fields.length; i++)
+        {
+            String next = literals[i + 1];
+            if (numeric[i])
+            {
+                pos = skipTags(message, pos);
+                int start = pos;
+                long value = 0;
+                while (pos < message.length())
+                {
+                    char c = message.charAt(pos);
+                    if (c >= '0' && c <= '9')
+                    {
+                        value = value * 10 + (c - '0');
+                    }
+                    else if (c != ',' || pos == start)
+                    {
+                        break;
+                    }
+                    pos++;
+                }
+                if (pos == start)
+                {
+                    return false;
+                }
+                out.setField(i, start, pos, value);
+                int end = matchLiteral(message, pos, next);
+                if (end == -1)
+                {
+                    return false;
+                }
+                pos = end;
+            }
+            else if (next.isEmpty())
+            {
+                // Trailing text field runs to the end of the message
+                if (pos >= message.length())
+                {
+                    return false;
+                }
+                out.setField(i, pos, message.length(), 0);
+                pos = message.length();
+            }
+            else
+            {
+                int start = pos;
+                int end = -1;
+                char first = next.charAt(0);
+                while ((pos = message.indexOf(first, pos)) != -1)
+                {
+                    end = matchLiteral(message, pos, next);
+                    if (end != -1)
+                    {
+                        break;
+                    }
+                    pos++;
+                }
+                if (end == -1 || pos == start)
+                {
+                    return false;
+                }
+                out.setField(i, start, pos, 0);
+                pos = end;
+            }
+        }
+        return true;
+    }
+
+    // Returns the position after literal if it occurs at pos, ignoring any <tags> in the message
+    static int matchLiteral(String message, int pos, String literal)
+    {
+        if (message.regionMatches(pos, literal, 0, literal.length()))
+        {
+            return pos + literal.length();
+        }
+
+        // Slow path only when the message has tags in the way
+        for (int i = 0; i < literal.length(); i++)
+        {
+            pos = skipTags(message, pos);
+            if (pos >= message.length() || message.charAt(pos) != literal.charAt(i))
+            {
+                return -1;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    static int skipTags(String message, int pos)
+    {
+        while (pos < message.length() && message.charAt(pos) == '<')
+        {
+            int close = message.indexOf('>', pos);
+            if (close == -1)
+            {
+                break;
+            }
+            pos = close + 1;
+        }
+        return pos;
+    }
+}
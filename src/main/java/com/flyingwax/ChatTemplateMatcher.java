@@ -0,0 +1,164 @@
+package com.flyingwax;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Classifies game messages against a table of ChatTemplates. The literal prefix of every
+// template is compiled into a path-compressed trie, so a message is only checked against the templates
+// whose prefix it actually starts with, longest prefix first. Supporting a new game
+// message means adding a line to DEFAULT_TEMPLATES.
+public class ChatTemplateMatcher
+{
+    public static final List<ChatTemplate> DEFAULT_TEMPLATES = List.of(
+        new ChatTemplate(EventKind.QUEST_COMPLETED, "Congratulations, you've completed a quest: {quest}"),
+        new ChatTemplate(EventKind.QUEST_COMPLETED, "Congratulations! You have completed {quest}."),
+        new ChatTemplate(EventKind.QUEST_COMPLETED, "You have completed {quest} quest"),
+        new ChatTemplate(EventKind.BOSS_KILL, "Your {boss} kill count is: {n}."),
+        new ChatTemplate(EventKind.BOSS_KILL, "Your completed {boss} count is: {n}."),
+        new ChatTemplate(EventKind.BOSS_KILL, "Your kill count is: {n}"),
+        new ChatTemplate(EventKind.RARE_DROP, "Valuable drop: {item} ({value} coins)"),
+        new ChatTemplate(EventKind.RARE_DROP, "Untradeable drop: {item}"),
+        new ChatTemplate(EventKind.RARE_DROP, "New item added to your collection log: {item}"),
+        new ChatTemplate(EventKind.RARE_DROP, "You have received a {item}."),
+        new ChatTemplate(EventKind.RARE_DROP, "You received {item}."),
+        new ChatTemplate(EventKind.RARE_DROP, "You got {item}."),
+        new ChatTemplate(EventKind.DEATH, "Oh dear, you are dead!"),
+        new ChatTemplate(EventKind.DEATH, "You have died")
+    );
+
+    private final Node root = new Node(null, "");
+
+    public ChatTemplateMatcher(List<ChatTemplate> templates)
+    {
+        for (ChatTemplate template : templates)
+        {
+            if (!ChatMatch.fits(template))
+            {
+                throw new IllegalArgumentException("Too many fields in chat template: " + template.getPattern());
+            }
+
+            Node node = root;
+            String prefix = template.getPrefix();
+            for (int i = 0; i < prefix.length(); i++)
+            {
+                node = node.childOrCreate(prefix.charAt(i));
+            }
+            node.addTemplate(template);
+        }
+        root.compress();
+    }
+
+    public static ChatTemplateMatcher defaults()
+    {
+        return new ChatTemplateMatcher(DEFAULT_TEMPLATES);
+    }
+
+    // Returns true and fills out if the message matches one of the templates
+    public boolean match(String message, ChatMatch out)
+    {
+        out.reset(message);
+        if (message == null)
+        {
+            return false;
+        }
+
+        // Walk down the trie as far as the message allows, remembering where each node ended
+        Node node = root;
+        int pos = ChatTemplate.skipTags(message, 0);
+        int depth = 0;
+        while (pos < message.length())
+        {
+            Node child = node.child(message.charAt(pos));
+            int end = child != null ? ChatTemplate.matchLiteral(message, pos, child.label) : -1;
+            if (end == -1)
+            {
+                break;
+            }
+            node = child;
+            pos = ChatTemplate.skipTags(message, end);
+            out.pushPrefixEnd(depth++, pos);
+        }
+
+        // Prefer the longest matching prefix, then fall back to shorter ones
+        while (node != root)
+        {
+            for (ChatTemplate template : node.templates)
+            {
+                if (template.matchFields(message, out.getPrefixEnd(depth - 1), out))
+                {
+                    out.setTemplate(template);
+                    return true;
+                }
+            }
+            node = node.parent;
+            depth--;
+        }
+        return false;
+    }
+
+    private static class Node
+    {
+        private Node parent;
+        // Prefix text between the parent and this node, starting with the key the parent holds
+        private String label;
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private ChatTemplate[] templates = new ChatTemplate[0];
+
+        Node(Node parent, String label)
+        {
+            this.parent = parent;
+            this.label = label;
+        }
+
+        Node child(char c)
+        {
+            for (int i = 0; i < keys.length; i++)
+            {
+                if (keys[i] == c)
+                {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrCreate(char c)
+        {
+            Node child = child(c);
+            if (child == null)
+            {
+                child = new Node(this, String.valueOf(c));
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = c;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+
+        void addTemplate(ChatTemplate template)
+        {
+            templates = Arrays.copyOf(templates, templates.length + 1);
+            templates[templates.length - 1] = template;
+        }
+
+        // Merges chains of single-child nodes without templates into one labelled edge
+        void compress()
+        {
+            for (int i = 0; i < children.length; i++)
+            {
+                Node child = children[i];
+                while (child.children.length == 1 && child.templates.length == 0)
+                {
+                    Node grandchild = child.children[0];
+                    grandchild.label = child.label + grandchild.label;
+                    grandchild.parent = this;
+                    child = grandchild;
+                }
+                children[i] = child;
+                child.compress();
+            }
+        }
+    }
+}
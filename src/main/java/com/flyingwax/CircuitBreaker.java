@@ -0,0 +1,139 @@
+package com.flyingwax;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+// Fails calls to one endpoint fast while it is unhealthy. After failureThreshold failures
+// in a row the breaker opens; once the open period is over a single probe call is let
+// through (half open) and its result either closes the breaker again or reopens it with
+// a longer, jittered open period so clients do not all come back at the same moment.
+@Slf4j
+public class CircuitBreaker
+{
+    public enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long baseOpenMillis;
+    private final long maxOpenMillis;
+    private final BiConsumer<String, State> listener;
+
+    private State state = State.CLOSED; // Guarded by this
+    private int failures;
+    private int openCount;
+    private long openUntil;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, long baseOpenMillis, long maxOpenMillis, BiConsumer<String, State> listener)
+    {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.baseOpenMillis = baseOpenMillis;
+        this.maxOpenMillis = maxOpenMillis;
+        this.listener = listener;
+    }
+
+    // Returns whether a call may go out now. A true result must be followed by onSuccess or onFailure.
+    public boolean tryAcquire(long now)
+    {
+        State changed = null;
+        synchronized (this)
+        {
+            switch (state)
+            {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (now < openUntil)
+                    {
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    changed = state;
+                    probeInFlight = true;
+                    break;
+                case HALF_OPEN:
+                    if (probeInFlight)
+                    {
+                        return false;
+                    }
+                    probeInFlight = true;
+                    break;
+            }
+        }
+
+        notify(changed);
+        return true;
+    }
+
+    public void onSuccess()
+    {
+        State changed = null;
+        synchronized (this)
+        {
+            failures = 0;
+            probeInFlight = false;
+            if (state != State.CLOSED)
+            {
+                state = State.CLOSED;
+                openCount = 0;
+                changed = state;
+            }
+        }
+
+        notify(changed);
+    }
+
+    public void onFailure(long now)
+    {
+        State changed = null;
+        synchronized (this)
+        {
+            probeInFlight = false;
+            failures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold))
+            {
+                // Each consecutive reopen doubles the open period, with full jitter on top of half of it
+                long period = Math.min(maxOpenMillis, baseOpenMillis << Math.min(openCount, 16));
+                openUntil = now + period / 2 + ThreadLocalRandom.current().nextLong(period / 2 + 1);
+                openCount++;
+                state = State.OPEN;
+                changed = state;
+            }
+        }
+
+        notify(changed);
+    }
+
+    public synchronized State getState()
+    {
+        return state;
+    }
+
+    // Milliseconds until the next probe may go out, 0 unless the breaker is open
+    public synchronized long getRetryDelay(long now)
+    {
+        return state == State.OPEN ? Math.max(0, openUntil - now) : 0;
+    }
+
+    private void notify(State changed)
+    {
+        if (changed == null)
+        {
+            return;
+        }
+
+        log.info("Circuit for {} is now {}", name, changed);
+        if (listener != null)
+        {
+            listener.accept(name, changed);
+        }
+    }
+}
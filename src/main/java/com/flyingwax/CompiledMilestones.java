@@ -0,0 +1,88 @@
+package com.flyingwax;
+
+// Immutable, pre-compiled view of a MilestoneConfig used by the capture path.
+// A new instance is built every time a config is loaded and swapped in as a whole.
+public class CompiledMilestones
+{
+    public static final int RARE_DROP = 1;
+    public static final int QUEST = 1 << 1;
+    public static final int ACHIEVEMENT = 1 << 2;
+    public static final int BOSS_KILL = 1 << 3;
+
+    private static final int MAX_LEVEL = 99;
+
+    private final MilestoneConfig config;
+    private final KeywordAutomaton keywords;
+    private final boolean[] levelMilestones = new boolean[MAX_LEVEL + 1];
+
+    private CompiledMilestones(MilestoneConfig config)
+    {
+        this.config = config;
+        this.keywords = KeywordAutomaton.builder()
+            .addAll(config.getRareDrops(), RARE_DROP)
+            .addAll(config.getQuestMilestones(), QUEST)
+            .addAll(config.getAchievementMilestones(), ACHIEVEMENT)
+            .addAll(config.getBossKills(), BOSS_KILL)
+            .build();
+
+        if (config.getLevelMilestones() != null)
+        {
+            for (Integer level : config.getLevelMilestones())
+            {
+                if (level != null && level > 0 && level <= MAX_LEVEL)
+                {
+                    levelMilestones[level] = true;
+                }
+            }
+        }
+    }
+
+    public static CompiledMilestones compile(MilestoneConfig config)
+    {
+        return new CompiledMilestones(config != null ? config : MilestoneConfig.getDefault());
+    }
+
+    public MilestoneConfig getConfig()
+    {
+        return config;
+    }
+
+    // Returns the category bits of every milestone keyword contained in the text
+    public int classify(CharSequence text)
+    {
+        return keywords.match(text);
+    }
+
+    public boolean isMilestoneLevel(int level)
+    {
+        return level > 0 && level <= MAX_LEVEL && levelMilestones[level];
+    }
+
+    // Highest milestone level in (previousLevel, level], or 0 if the level up crossed none
+    public int highestMilestoneReached(int previousLevel, int level)
+    {
+        for (int l = Math.min(level, MAX_LEVEL); l > previousLevel && l > 0; l--)
+        {
+            if (levelMilestones[l])
+            {
+                return l;
+            }
+        }
+        return 0;
+    }
+
+    public boolean isRareDrop(CharSequence itemName)
+    {
+        return (classify(itemName) & RARE_DROP) != 0;
+    }
+
+    public boolean isSignificantAchievement(CharSequence achievement)
+    {
+        return (classify(achievement) & (QUEST | ACHIEVEMENT)) != 0;
+    }
+
+    public boolean isSignificantBossKill(CharSequence bossName)
+    {
+        return (classify(bossName) & BOSS_KILL) != 0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.flyingwax;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Calls back when a single file changes. WatchService only watches directories, so the
+// file's directory is watched and events for other files are ignored. Editors usually save
+// in several steps (truncate, write, rename), so the callback only runs once the file has
+// been quiet for the debounce delay, on the given executor.
+@Slf4j
+public class ConfigFileWatcher
+{
+    private final Path file;
+    private final long debounceMs;
+    private final ScheduledExecutorService executor;
+    private final Runnable onChange;
+    private WatchService watchService;
+    // Guarded by this
+    private ScheduledFuture<?> pending;
+    private boolean stopped;
+
+    public ConfigFileWatcher(Path file, long debounceMs, ScheduledExecutorService executor, Runnable onChange)
+    {
+        this.file = file.toAbsolutePath();
+        this.debounceMs = debounceMs;
+        this.executor = executor;
+        this.onChange = onChange;
+    }
+
+    public void start() throws IOException
+    {
+        Path directory = file.getParent();
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread thread = new Thread(this::run, "iron-trials-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop()
+    {
+        try
+        {
+            if (watchService != null)
+            {
+                // Wakes up the watcher thread with ClosedWatchServiceException
+                watchService.close();
+            }
+        }
+        catch (IOException e)
+        {
+            log.debug("Error closing config watcher", e);
+        }
+
+        synchronized (this)
+        {
+            stopped = true;
+            if (pending != null)
+            {
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+    }
+
+    private void run()
+    {
+        try
+        {
+            while (true)
+            {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                {
+                    // OVERFLOW has no context, something may have been missed so reload anyway
+                    Object context = event.context();
+                    if (context == null || file.getFileName().equals(context))
+                    {
+                        changed = true;
+                    }
+                }
+                if (changed)
+                {
+                    schedule();
+                }
+                if (!key.reset())
+                {
+                    log.warn("Stopped watching {}, its directory is no longer accessible", file);
+                    return;
+                }
+            }
+        }
+        catch (ClosedWatchServiceException | InterruptedException e)
+        {
+            // Stopped
+        }
+    }
+
+    private synchronized void schedule()
+    {
+        if (stopped)
+        {
+            return;
+        }
+        if (pending != null)
+        {
+            pending.cancel(false);
+        }
+        pending = executor.schedule(onChange, debounceMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,143 @@
+package com.flyingwax;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Collects events per server and group and uploads them as one batch once either
+// maxBatchSize events are waiting or the oldest has waited maxDelayMillis. Every caller
+// gets its own future, completed from the matching entry of the batch response: accepted or
+// rejected by the server, or failed if the batch as a whole got no usable answer.
+@Slf4j
+public class EventBatcher
+{
+    public interface BatchSender
+    {
+        // Completes with one result per event, in order, or null if the whole batch failed
+        CompletableFuture<List<Boolean>> send(String serverUrl, String groupId, List<GameEvent> events);
+    }
+
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final BatchSender sender;
+    private final Map<String, Batch> pending = new HashMap<>(); // Guarded by this
+
+    public EventBatcher(int maxBatchSize, long maxDelayMillis, ScheduledExecutorService scheduler, BatchSender sender)
+    {
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        this.scheduler = scheduler;
+        this.sender = sender;
+    }
+
+    // flushNow sends the batch right away, taking along whatever is already waiting
+    public CompletableFuture<SendResult> add(String serverUrl, String groupId, GameEvent event, boolean flushNow)
+    {
+        CompletableFuture<SendResult> result = new CompletableFuture<>();
+        Batch full = null;
+
+        synchronized (this)
+        {
+            String key = serverUrl + "|" + groupId;
+            Batch batch = pending.get(key);
+            if (batch == null)
+            {
+                batch = new Batch(key, serverUrl, groupId);
+                pending.put(key, batch);
+                Batch scheduled = batch;
+                batch.timer = scheduler.schedule(() -> flush(scheduled), maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+
+            batch.events.add(event);
+            batch.results.add(result);
+            if (flushNow || batch.events.size() >= maxBatchSize)
+            {
+                pending.remove(key);
+                batch.timer.cancel(false);
+                full = batch;
+            }
+        }
+
+        if (full != null)
+        {
+            send(full);
+        }
+        return result;
+    }
+
+    // Sends everything that is waiting right away, e.g. before shutting down
+    public void flushAll()
+    {
+        List<Batch> batches;
+        synchronized (this)
+        {
+            batches = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+
+        for (Batch batch : batches)
+        {
+            batch.timer.cancel(false);
+            send(batch);
+        }
+    }
+
+    private void flush(Batch batch)
+    {
+        synchronized (this)
+        {
+            // Already sent because it filled up or was flushed
+            if (pending.get(batch.key) != batch)
+            {
+                return;
+            }
+            pending.remove(batch.key);
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch)
+    {
+        log.debug("Sending batch of {} events to group {}", batch.events.size(), batch.groupId);
+        sender.send(batch.serverUrl, batch.groupId, batch.events).whenComplete((results, ex) -> {
+            for (int i = 0; i < batch.results.size(); i++)
+            {
+                SendResult result;
+                if (ex != null || results == null || i >= results.size() || results.get(i) == null)
+                {
+                    result = SendResult.FAILED;
+                }
+                else
+                {
+                    result = results.get(i) ? SendResult.ACCEPTED : SendResult.REJECTED;
+                }
+                batch.results.get(i).complete(result);
+            }
+        });
+    }
+
+    private static class Batch
+    {
+        private final String key;
+        private final String serverUrl;
+        private final String groupId;
+        private final List<GameEvent> events = new ArrayList<>();
+        private final List<CompletableFuture<SendResult>> results = new ArrayList<>();
+        private ScheduledFuture<?> timer;
+
+        Batch(String key, String serverUrl, String groupId)
+        {
+            this.key = key;
+            this.serverUrl = serverUrl;
+            this.groupId = groupId;
+        }
+    }
+}
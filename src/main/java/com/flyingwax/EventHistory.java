@@ -0,0 +1,657 @@
+package com.flyingwax;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.CRC32;
+
+// Local history of feed events, kept across restarts so the feed can page back without
+// asking the server. Events are appended to segment files of up to SEGMENT_SIZE bytes:
+//
+//   int magic | int version | record...
+//   record: int payloadLength | int crc32(payload) | payload
+//   payload: long timestamp | int points | byte presentFields | string... (varint length, UTF-8)
+//            | metadata: varint xp | varint killCount | varint itemId | varint quantity | varlong value
+//
+// Version 1 segments stored the metadata as a string, they are still read but never appended to.
+// Every BLOCK_RECORDS records a sparse index entry (int start | int end | long minTimestamp |
+// long maxTimestamp) is appended to the segment's .idx file, so opening the store only reads
+// the small index files plus the few records written since the last entry. Queries map the
+// segments read-only and skip every block that cannot hold a match. Events are stored in
+// arrival order, which is only roughly time order, so a query keeps scanning until no
+// earlier block can hold anything newer than what it already found. Nothing is fsynced, a
+// torn record at the end of a segment is cut off when it is opened.
+@Slf4j
+public class EventHistory
+{
+    private static final int MAGIC = 0x49544831; // "ITH1"
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int INDEX_ENTRY_SIZE = 4 + 4 + 8 + 8;
+    private static final int SEGMENT_SIZE = 1 << 20;
+    private static final int BLOCK_RECORDS = 64;
+    // append() never writes a larger payload, so a longer length field is garbage
+    private static final int MAX_RECORD_SIZE = 64 << 10;
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_PLAYER = 1 << 1;
+    private static final int HAS_KIND = 1 << 2;
+    private static final int HAS_DESCRIPTION = 1 << 3;
+    private static final int HAS_METADATA = 1 << 4;
+
+    private final File directory;
+    private final long retentionSeconds;
+    private final long maxBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+
+    public EventHistory(File directory, long retentionSeconds, long maxBytes)
+    {
+        this.directory = directory;
+        this.retentionSeconds = retentionSeconds;
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized void open() throws IOException
+    {
+        Files.createDirectories(directory.toPath());
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".seg"));
+        long[] ids = files == null ? new long[0] : Arrays.stream(files)
+            .mapToLong(file -> parseId(file.getName()))
+            .filter(id -> id > 0)
+            .sorted()
+            .toArray();
+        for (long id : ids)
+        {
+            Segment segment = new Segment(id);
+            if (load(segment))
+            {
+                segments.add(segment);
+            }
+        }
+
+        if (segments.isEmpty())
+        {
+            segments.add(create(1));
+        }
+        else if (active().version != VERSION)
+        {
+            segments.add(create(active().id + 1));
+        }
+        channel = FileChannel.open(active().data.toPath(), StandardOpenOption.WRITE);
+        applyRetention();
+        log.info("Opened event history with {} segments", segments.size());
+    }
+
+    public synchronized void close()
+    {
+        if (channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            // Index the last partial block, so the next open has no records to scan
+            indexOpenBlock(active());
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            log.warn("Error closing event history", e);
+        }
+        channel = null;
+    }
+
+    public synchronized void append(GameEvent event)
+    {
+        if (channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            byte[] payload = encode(event);
+            if (payload.length > MAX_RECORD_SIZE)
+            {
+                // load() would take it for a torn record and cut off everything after it
+                log.warn("Not recording oversized event in history ({} bytes)", payload.length);
+                return;
+            }
+            int length = RECORD_HEADER_SIZE + payload.length;
+            if (active().size + length > SEGMENT_SIZE && active().size > FILE_HEADER_SIZE)
+            {
+                roll();
+            }
+
+            crc.reset();
+            crc.update(payload);
+            ByteBuffer record = ByteBuffer.allocate(length);
+            record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+            Segment segment = active();
+            long position = segment.size;
+            while (record.hasRemaining())
+            {
+                position += channel.write(record, position);
+            }
+            segment.add(segment.size, (int) position, event.getTimestamp());
+            segment.size = (int) position;
+            if (segment.openBlock().count >= BLOCK_RECORDS)
+            {
+                indexOpenBlock(segment);
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to write event history", e);
+        }
+    }
+
+    // Up to limit events older than before (a timestamp in seconds, exclusive), newest first.
+    // Only events of playerName if it is not null. Events sharing the oldest timestamp of the
+    // page are all returned, so paging on with that timestamp misses none of them.
+    public synchronized List<GameEvent> page(String playerName, long before, int limit)
+    {
+        PriorityQueue<GameEvent> found = new PriorityQueue<>(Comparator.comparingLong(GameEvent::getTimestamp));
+        if (limit <= 0)
+        {
+            return new ArrayList<>();
+        }
+
+        // Newest timestamp in all segments before each one
+        long[] earlierMax = new long[segments.size()];
+        earlierMax[0] = Long.MIN_VALUE;
+        for (int i = 1; i < segments.size(); i++)
+        {
+            earlierMax[i] = Math.max(earlierMax[i - 1], segments.get(i - 1).maxTimestamp);
+        }
+
+        search:
+        for (int i = segments.size() - 1; i >= 0; i--)
+        {
+            Segment segment = segments.get(i);
+            List<Block> blocks = segment.blocks;
+            long[] blockMax = new long[blocks.size()];
+            for (int j = 0; j < blocks.size(); j++)
+            {
+                blockMax[j] = Math.max(j > 0 ? blockMax[j - 1] : Long.MIN_VALUE, blocks.get(j).maxTimestamp);
+            }
+
+            ByteBuffer mapped = null;
+            for (int j = blocks.size() - 1; j >= 0; j--)
+            {
+                // Nothing in this block or anything before it can beat the page we have
+                long bound = Math.max(earlierMax[i], blockMax[j]);
+                if (found.size() >= limit && bound < found.peek().getTimestamp())
+                {
+                    break search;
+                }
+
+                Block block = blocks.get(j);
+                if (block.minTimestamp >= before)
+                {
+                    continue;
+                }
+
+                try
+                {
+                    if (mapped == null)
+                    {
+                        mapped = map(segment);
+                    }
+                    scan(mapped, segment, block, playerName, before, limit, found);
+                }
+                catch (IOException | RuntimeException e)
+                {
+                    log.warn("Skipping unreadable history block in {}: {}", segment.data, e.getMessage());
+                }
+            }
+        }
+
+        List<GameEvent> page = new ArrayList<>(found);
+        page.sort(Comparator.comparingLong(GameEvent::getTimestamp).reversed());
+        return page;
+    }
+
+    private void scan(ByteBuffer mapped, Segment segment, Block block, String playerName, long before, int limit, PriorityQueue<GameEvent> found)
+    {
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position(block.start);
+        while (buffer.position() < block.end)
+        {
+            int length = buffer.getInt();
+            buffer.getInt(); // crc, verified when the record was recovered
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            buffer.position(buffer.position() + length);
+
+            if (payload.getLong(0) >= before)
+            {
+                continue;
+            }
+            GameEvent event = decode(payload, segment.version);
+            if (playerName == null || playerName.equals(event.getPlayerName()))
+            {
+                found.add(event);
+                trim(found, limit);
+            }
+        }
+    }
+
+    // Drops the oldest timestamp group while the page stays full without it
+    private static void trim(PriorityQueue<GameEvent> found, int limit)
+    {
+        while (found.size() > limit)
+        {
+            long oldest = found.peek().getTimestamp();
+            List<GameEvent> group = new ArrayList<>();
+            while (!found.isEmpty() && found.peek().getTimestamp() == oldest)
+            {
+                group.add(found.poll());
+            }
+            if (found.size() < limit)
+            {
+                found.addAll(group);
+                return;
+            }
+        }
+    }
+
+    private void roll() throws IOException
+    {
+        Segment sealed = active();
+        indexOpenBlock(sealed);
+        channel.close();
+
+        Segment next = create(sealed.id + 1);
+        segments.add(next);
+        channel = FileChannel.open(next.data.toPath(), StandardOpenOption.WRITE);
+        applyRetention();
+    }
+
+    // Deletes the oldest segments past the retention period or the size limit, never the active one
+    private void applyRetention()
+    {
+        long cutoff = System.currentTimeMillis() / 1000 - retentionSeconds;
+        long total = segments.stream().mapToLong(segment -> segment.size + segment.blocks.size() * (long) INDEX_ENTRY_SIZE).sum();
+        while (segments.size() > 1)
+        {
+            Segment oldest = segments.get(0);
+            if (oldest.maxTimestamp >= cutoff && total <= maxBytes)
+            {
+                return;
+            }
+
+            // A segment still mapped by a recent query cannot be deleted on Windows, try again later
+            if (!oldest.data.delete())
+            {
+                log.debug("Could not delete history segment {} yet", oldest.data);
+                return;
+            }
+            oldest.index.delete();
+            total -= oldest.size + oldest.blocks.size() * (long) INDEX_ENTRY_SIZE;
+            segments.remove(0);
+        }
+    }
+
+    private Segment active()
+    {
+        return segments.get(segments.size() - 1);
+    }
+
+    private Segment create(long id) throws IOException
+    {
+        Segment segment = new Segment(id);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        try (FileChannel file = FileChannel.open(segment.data.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            file.write(header);
+        }
+        Files.deleteIfExists(segment.index.toPath());
+        segment.size = FILE_HEADER_SIZE;
+        return segment;
+    }
+
+    // Reads the segment's index and recovers the records written after its last entry.
+    // Returns false if the file is not a history segment.
+    private boolean load(Segment segment) throws IOException
+    {
+        try (FileChannel file = FileChannel.open(segment.data.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            long fileSize = file.size();
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            file.read(header, 0);
+            header.flip();
+            if (fileSize < FILE_HEADER_SIZE || header.getInt() != MAGIC)
+            {
+                log.warn("Ignoring {}, it is not an event history segment", segment.data);
+                return false;
+            }
+            segment.version = header.getInt();
+            if (segment.version < 1 || segment.version > VERSION)
+            {
+                log.warn("Ignoring {}, unknown history version {}", segment.data, segment.version);
+                return false;
+            }
+
+            int indexed = FILE_HEADER_SIZE;
+            if (segment.index.exists())
+            {
+                ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(segment.index.toPath()));
+                while (entries.remaining() >= INDEX_ENTRY_SIZE)
+                {
+                    Block block = new Block(entries.getInt(), entries.getInt(), entries.getLong(), entries.getLong());
+                    if (block.start != indexed || block.end <= block.start || block.end > fileSize)
+                    {
+                        break;
+                    }
+                    block.indexed = true;
+                    segment.blocks.add(block);
+                    segment.maxTimestamp = Math.max(segment.maxTimestamp, block.maxTimestamp);
+                    indexed = block.end;
+                }
+                // Drop a torn or stale tail of the index, it is rebuilt from the records below
+                try (FileChannel index = FileChannel.open(segment.index.toPath(), StandardOpenOption.WRITE))
+                {
+                    index.truncate((long) segment.blocks.size() * INDEX_ENTRY_SIZE);
+                }
+            }
+            segment.size = indexed;
+
+            // Records after the last index entry, few unless the client crashed
+            ByteBuffer tail = ByteBuffer.allocate((int) (fileSize - indexed));
+            while (tail.hasRemaining())
+            {
+                if (file.read(tail, indexed + tail.position()) < 0)
+                {
+                    break;
+                }
+            }
+            tail.flip();
+            while (tail.remaining() >= RECORD_HEADER_SIZE)
+            {
+                int length = tail.getInt(tail.position());
+                if (length < 8 || length > MAX_RECORD_SIZE || length > tail.remaining() - RECORD_HEADER_SIZE)
+                {
+                    break;
+                }
+                crc.reset();
+                crc.update(tail.array(), tail.position() + RECORD_HEADER_SIZE, length);
+                if ((int) crc.getValue() != tail.getInt(tail.position() + 4))
+                {
+                    break;
+                }
+                long timestamp = tail.getLong(tail.position() + RECORD_HEADER_SIZE);
+                int end = segment.size + RECORD_HEADER_SIZE + length;
+                segment.add(segment.size, end, timestamp);
+                segment.size = end;
+                tail.position(tail.position() + RECORD_HEADER_SIZE + length);
+                if (segment.openBlock().count >= BLOCK_RECORDS)
+                {
+                    indexOpenBlock(segment);
+                }
+            }
+
+            if (segment.size < fileSize)
+            {
+                log.warn("Truncating {} torn bytes from {}", fileSize - segment.size, segment.data);
+                file.truncate(segment.size);
+            }
+        }
+        return true;
+    }
+
+    // Appends the entry of the block being written to the index, the next record starts a new block
+    private void indexOpenBlock(Segment segment) throws IOException
+    {
+        Block block = segment.blocks.isEmpty() ? null : segment.blocks.get(segment.blocks.size() - 1);
+        if (block == null || block.indexed)
+        {
+            return;
+        }
+
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE)
+            .putInt(block.start).putInt(block.end).putLong(block.minTimestamp).putLong(block.maxTimestamp);
+        entry.flip();
+        try (FileChannel index = FileChannel.open(segment.index.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+        {
+            index.write(entry);
+        }
+        block.indexed = true;
+    }
+
+    private static ByteBuffer map(Segment segment) throws IOException
+    {
+        try (FileChannel file = FileChannel.open(segment.data.toPath(), StandardOpenOption.READ))
+        {
+            // The mapping stays valid after the channel is closed
+            return file.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+        }
+    }
+
+    private static long parseId(String name)
+    {
+        try
+        {
+            return Long.parseLong(name.substring(0, name.length() - ".seg".length()));
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    private static byte[] encode(GameEvent event)
+    {
+        String kind = event.getKind() != null ? event.getKind().name() : null;
+        byte[][] strings = {
+            utf8(event.getId()), utf8(event.getPlayerName()), utf8(kind), utf8(event.getDescription())
+        };
+        EventMetadata metadata = event.getMetadata();
+
+        int size = 8 + 4 + 1 + 4 * 5 + 10;
+        int present = 0;
+        for (int i = 0; i < strings.length; i++)
+        {
+            if (strings[i] != null)
+            {
+                present |= 1 << i;
+                size += 5 + strings[i].length;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(event.getTimestamp()).putInt(event.getPoints()).put((byte) present);
+        for (byte[] string : strings)
+        {
+            if (string != null)
+            {
+                putVarInt(buffer, string.length);
+                buffer.put(string);
+            }
+        }
+        if (metadata != null)
+        {
+            buffer.put(12, (byte) (present | HAS_METADATA));
+            putVarInt(buffer, metadata.getXp());
+            putVarInt(buffer, metadata.getKillCount());
+            putVarInt(buffer, metadata.getItemId());
+            putVarInt(buffer, metadata.getQuantity());
+            putVarLong(buffer, metadata.getValue());
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static GameEvent decode(ByteBuffer payload, int version)
+    {
+        GameEvent event = new GameEvent();
+        event.setTimestamp(payload.getLong());
+        event.setPoints(payload.getInt());
+        int present = payload.get();
+        event.setId((present & HAS_ID) != 0 ? getString(payload) : null);
+        event.setPlayerName((present & HAS_PLAYER) != 0 ? getString(payload) : null);
+        if ((present & HAS_KIND) != 0)
+        {
+            String kind = getString(payload);
+            try
+            {
+                event.setKind(EventKind.valueOf(kind));
+            }
+            catch (IllegalArgumentException e)
+            {
+                // A kind this version does not know, keep the rest of the event
+            }
+        }
+        event.setDescription((present & HAS_DESCRIPTION) != 0 ? getString(payload) : null);
+        if ((present & HAS_METADATA) != 0)
+        {
+            event.setMetadata(version == 1 ? EventMetadata.fromLegacy(getString(payload)) : new EventMetadata(
+                getVarInt(payload), getVarInt(payload), getVarInt(payload), getVarInt(payload), getVarLong(payload)));
+        }
+        return event;
+    }
+
+    private static byte[] utf8(String value)
+    {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static String getString(ByteBuffer buffer)
+    {
+        int length = getVarInt(buffer);
+        if (length > buffer.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value)
+    {
+        while ((value & ~0x7f) != 0)
+        {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value)
+    {
+        while ((value & ~0x7fL) != 0)
+        {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarInt(ByteBuffer buffer)
+    {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7)
+        {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed length");
+    }
+
+    private static long getVarLong(ByteBuffer buffer)
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed number");
+    }
+
+    private class Segment
+    {
+        private final long id;
+        private final File data;
+        private final File index;
+        private int version = VERSION;
+        private final List<Block> blocks = new ArrayList<>();
+        private int size;
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        Segment(long id)
+        {
+            this.id = id;
+            this.data = new File(directory, String.format("%019d.seg", id));
+            this.index = new File(directory, String.format("%019d.idx", id));
+        }
+
+        // Adds a record to the block being written, starting a new one if the last was indexed
+        void add(int start, int end, long timestamp)
+        {
+            Block block = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+            if (block == null || block.indexed)
+            {
+                block = new Block(start, end, timestamp, timestamp);
+                blocks.add(block);
+            }
+            block.end = end;
+            block.minTimestamp = Math.min(block.minTimestamp, timestamp);
+            block.maxTimestamp = Math.max(block.maxTimestamp, timestamp);
+            block.count++;
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+        }
+
+        Block openBlock()
+        {
+            return blocks.get(blocks.size() - 1);
+        }
+    }
+
+    private static class Block
+    {
+        private final int start;
+        private int end;
+        private long minTimestamp;
+        private long maxTimestamp;
+        private int count;
+        private boolean indexed;
+
+        Block(int start, int end, long minTimestamp, long maxTimestamp)
+        {
+            this.start = start;
+            this.end = end;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+        }
+    }
+}
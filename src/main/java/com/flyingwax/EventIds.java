@@ -0,0 +1,59 @@
+package com.flyingwax;
+
+import java.security.SecureRandom;
+
+// Client-side event ids in the ULID layout: 48 bits of milliseconds and 80 random bits,
+// Crockford base32 encoded into 26 characters. Ids sort by creation time, as strings too,
+// and ids made in the same millisecond increment the random part, so they stay ordered.
+// The server uses them as idempotency keys, which makes resending an event harmless.
+public final class EventIds
+{
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static long lastTime;
+    private static long randomHigh; // 16 bits
+    private static long randomLow;
+
+    private EventIds()
+    {
+    }
+
+    public static synchronized String next()
+    {
+        long now = System.currentTimeMillis();
+        if (now > lastTime)
+        {
+            lastTime = now;
+            randomHigh = RANDOM.nextInt(1 << 16);
+            randomLow = RANDOM.nextLong();
+        }
+        else if (++randomLow == 0)
+        {
+            // Carry into the high bits; in the very unlikely overflow borrow the next millisecond
+            randomHigh = (randomHigh + 1) & 0xffff;
+            if (randomHigh == 0)
+            {
+                lastTime++;
+            }
+        }
+
+        char[] id = new char[26];
+        long time = lastTime;
+        for (int i = 9; i >= 0; i--)
+        {
+            id[i] = ALPHABET[(int) (time & 31)];
+            time >>>= 5;
+        }
+        // 80 random bits as 16 characters, 5 bits each from the low end
+        long low = randomLow;
+        long high = randomHigh;
+        for (int i = 25; i >= 10; i--)
+        {
+            id[i] = ALPHABET[(int) (low & 31)];
+            low = (low >>> 5) | (high & 31) << 59;
+            high >>>= 5;
+        }
+        return new String(id);
+    }
+}
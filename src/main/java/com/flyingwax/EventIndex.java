@@ -0,0 +1,277 @@
+package com.flyingwax;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// In-memory query engine over recent events. Every event gets an offset in arrival order
+// and its timestamp, kind and player are kept in primitive columns by offset. Each kind and
+// each player has a posting list of offsets, sorted because offsets only grow, and all
+// offsets are also kept sorted by timestamp. A query intersects the posting lists of its
+// filters, or walks the time order if the time range is the narrower filter, and only then
+// looks at the events themselves. Once capacity is reached the oldest quarter by timestamp
+// is dropped and the rest renumbered, so memory stays bounded.
+public class EventIndex
+{
+    private final int capacity;
+    private final Map<EventKind, IntList> byKind = new EnumMap<>(EventKind.class);
+    private final Map<String, IntList> byPlayer = new HashMap<>();
+    private final IntList byTime = new IntList();
+    // Columns by offset
+    private GameEvent[] events;
+    private long[] timestamps;
+    private final Set<GameEvent> known = new HashSet<>();
+    private int size;
+
+    public EventIndex(int capacity)
+    {
+        this.capacity = capacity;
+        this.events = new GameEvent[Math.min(capacity, 1024)];
+        this.timestamps = new long[events.length];
+    }
+
+    public synchronized void add(GameEvent event)
+    {
+        // The same event can arrive through sync, push and the history preload
+        if (!known.add(event))
+        {
+            return;
+        }
+        if (size == capacity)
+        {
+            compact();
+        }
+        if (size == events.length)
+        {
+            events = Arrays.copyOf(events, Math.min(capacity, size * 2));
+            timestamps = Arrays.copyOf(timestamps, events.length);
+        }
+
+        int offset = size++;
+        events[offset] = event;
+        timestamps[offset] = event.getTimestamp();
+        if (event.getKind() != null)
+        {
+            byKind.computeIfAbsent(event.getKind(), kind -> new IntList()).add(offset);
+        }
+        if (event.getPlayerName() != null)
+        {
+            byPlayer.computeIfAbsent(event.getPlayerName(), name -> new IntList()).add(offset);
+        }
+
+        // Events mostly arrive in time order, so this is nearly always an append
+        int position = byTime.size;
+        while (position > 0 && timestamps[byTime.get(position - 1)] > event.getTimestamp())
+        {
+            position--;
+        }
+        byTime.insert(position, offset);
+    }
+
+    public synchronized void addAll(List<GameEvent> events)
+    {
+        events.forEach(this::add);
+    }
+
+    // Up to limit events with from <= timestamp < to, newest first. Kinds and playerName only
+    // filter if they are not null; several kinds match any of them.
+    public synchronized List<GameEvent> query(Set<EventKind> kinds, String playerName, long from, long to, int limit)
+    {
+        int first = lowerBound(from);
+        int last = lowerBound(to);
+        int rangeSize = last - first;
+
+        IntList candidates = null;
+        if (kinds != null)
+        {
+            candidates = new IntList();
+            for (EventKind kind : kinds)
+            {
+                candidates = IntList.union(candidates, byKind.getOrDefault(kind, IntList.EMPTY));
+            }
+        }
+        if (playerName != null)
+        {
+            IntList player = byPlayer.getOrDefault(playerName, IntList.EMPTY);
+            candidates = candidates == null ? player : IntList.intersect(candidates, player);
+        }
+
+        List<GameEvent> result = new ArrayList<>();
+        if (candidates == null || rangeSize <= candidates.size)
+        {
+            // Walk the time range from its newest end and check the other filters per event
+            for (int i = last - 1; i >= first && result.size() < limit; i--)
+            {
+                GameEvent event = events[byTime.get(i)];
+                if ((kinds == null || kinds.contains(event.getKind()))
+                    && (playerName == null || playerName.equals(event.getPlayerName())))
+                {
+                    result.add(event);
+                }
+            }
+            return result;
+        }
+
+        for (int i = 0; i < candidates.size; i++)
+        {
+            int offset = candidates.get(i);
+            if (timestamps[offset] >= from && timestamps[offset] < to)
+            {
+                result.add(events[offset]);
+            }
+        }
+        result.sort(Comparator.comparingLong(GameEvent::getTimestamp).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    // Position in the time order of the first event at or after timestamp
+    private int lowerBound(long timestamp)
+    {
+        int low = 0;
+        int high = byTime.size;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (timestamps[byTime.get(mid)] < timestamp)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Keeps the newest three quarters by timestamp and rebuilds the lists with new offsets
+    private void compact()
+    {
+        List<GameEvent> kept = new ArrayList<>();
+        for (int i = byTime.size / 4; i < byTime.size; i++)
+        {
+            kept.add(events[byTime.get(i)]);
+        }
+
+        Arrays.fill(events, null);
+        byKind.clear();
+        byPlayer.clear();
+        byTime.size = 0;
+        known.clear();
+        size = 0;
+        kept.forEach(this::add);
+    }
+
+    // Growable list of primitive ints
+    private static class IntList
+    {
+        private static final IntList EMPTY = new IntList();
+
+        private int[] values = new int[8];
+        private int size;
+
+        int get(int index)
+        {
+            return values[index];
+        }
+
+        void add(int value)
+        {
+            insert(size, value);
+        }
+
+        void insert(int index, int value)
+        {
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        // Both lists sorted ascending
+        static IntList union(IntList a, IntList b)
+        {
+            IntList result = new IntList();
+            result.values = new int[Math.max(8, a.size + b.size)];
+            int i = 0;
+            int j = 0;
+            while (i < a.size || j < b.size)
+            {
+                if (j == b.size || i < a.size && a.values[i] < b.values[j])
+                {
+                    result.values[result.size++] = a.values[i++];
+                }
+                else
+                {
+                    if (i < a.size && a.values[i] == b.values[j])
+                    {
+                        i++;
+                    }
+                    result.values[result.size++] = b.values[j++];
+                }
+            }
+            return result;
+        }
+
+        // Both lists sorted ascending. Binary searches the longer list if it is much longer.
+        static IntList intersect(IntList a, IntList b)
+        {
+            IntList small = a.size <= b.size ? a : b;
+            IntList large = small == a ? b : a;
+            IntList result = new IntList();
+            if (small.size * 16L < large.size)
+            {
+                int from = 0;
+                for (int i = 0; i < small.size; i++)
+                {
+                    int found = Arrays.binarySearch(large.values, from, large.size, small.values[i]);
+                    if (found >= 0)
+                    {
+                        result.add(small.values[i]);
+                        from = found + 1;
+                    }
+                    else
+                    {
+                        from = -found - 1;
+                    }
+                }
+                return result;
+            }
+
+            int i = 0;
+            int j = 0;
+            while (i < small.size && j < large.size)
+            {
+                if (small.values[i] < large.values[j])
+                {
+                    i++;
+                }
+                else if (small.values[i] > large.values[j])
+                {
+                    j++;
+                }
+                else
+                {
+                    result.add(small.values[i]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.flyingwax;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Typed details of an event, which fields are set depends on its kind: xp for level ups,
+// killCount for boss kills, itemId, quantity and value (coins) for drops. Unset fields are
+// zero and left out of the JSON, so a level up serializes as {"xp":737627}.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+public class EventMetadata
+{
+    private int xp;
+    private int killCount;
+    private int itemId;
+    private int quantity;
+    private long value;
+
+    public static EventMetadata ofXp(int xp)
+    {
+        return new EventMetadata(xp, 0, 0, 0, 0);
+    }
+
+    public static EventMetadata ofKillCount(int killCount)
+    {
+        return new EventMetadata(0, killCount, 0, 0, 0);
+    }
+
+    public static EventMetadata ofDrop(int itemId, int quantity, long value)
+    {
+        return new EventMetadata(0, 0, itemId, quantity, value);
+    }
+
+    // Older clients, and events journaled by them, sent metadata as a "xp:123" string. Only
+    // the xp form carried a number, anything else has nothing to keep.
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static EventMetadata fromLegacy(String legacy)
+    {
+        if (legacy != null && legacy.startsWith("xp:"))
+        {
+            try
+            {
+                return ofXp(Integer.parseInt(legacy.substring(3).trim()));
+            }
+            catch (NumberFormatException e)
+            {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,347 @@
+package com.flyingwax;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+// Append-only, memory-mapped journal of events the server has not accepted yet. An event is
+// appended before it is sent and an ack record is appended once the server took it, so
+// whatever is still pending after a crash or restart can be replayed. A journal file is
+//
+//   long generation | record...
+//   record: int payloadLength | byte type | long sequence | int crc32(payload) | payload
+//
+// where a zero type byte marks the end. A record with a bad checksum (a write torn by a
+// crash) also ends it. Compaction copies the pending events into the other of two journal
+// files and only then stamps it with a higher generation, so files are never truncated,
+// renamed or deleted while mapped (which Windows does not allow). Appends never fsync unless
+// the durability mode asks for it.
+@Slf4j
+public class EventOutbox
+{
+    private static final byte TYPE_END = 0;
+    private static final byte TYPE_EVENT = 1;
+    private static final byte TYPE_ACK = 2;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4;
+    private static final int INITIAL_SIZE = 1 << 20;
+    // Only rewrite the journal once enough acknowledged records have piled up
+    private static final int COMPACT_THRESHOLD = 256 << 10;
+
+    private final File[] files;
+    private final FileChannel[] channels = new FileChannel[2];
+    private final ObjectMapper objectMapper;
+    private final Map<Long, GameEvent> pending = new LinkedHashMap<>();
+    // Journal bytes of each pending event's record, freed by compaction once it is acked
+    private final Map<Long, Integer> recordSizes = new HashMap<>();
+    private final Set<Long> inFlight = new HashSet<>();
+    private final CRC32 crc = new CRC32();
+
+    private OutboxDurability durability;
+    private int active;
+    private long generation;
+    private MappedByteBuffer buffer;
+    private long nextSequence = 1;
+    private int deadBytes;
+    private boolean dirty;
+
+    public EventOutbox(File directory, ObjectMapper objectMapper, OutboxDurability durability)
+    {
+        this.files = new File[] {
+            new File(directory, "outbox-0.journal"),
+            new File(directory, "outbox-1.journal")
+        };
+        this.objectMapper = objectMapper;
+        this.durability = durability;
+    }
+
+    public synchronized void open() throws IOException
+    {
+        Files.createDirectories(files[0].toPath().getParent());
+
+        // The journal with the highest generation is the live one
+        long[] generations = new long[2];
+        for (int i = 0; i < files.length; i++)
+        {
+            if (files[i].length() >= FILE_HEADER_SIZE)
+            {
+                generations[i] = map(i, files[i].length()).getLong(0);
+            }
+        }
+        active = generations[1] > generations[0] ? 1 : 0;
+        generation = Math.max(1, generations[active]);
+
+        buffer = map(active, Math.max(INITIAL_SIZE, files[active].length()));
+        buffer.putLong(0, generation);
+        recover();
+        log.info("Opened event outbox {} with {} unsent events", files[active], pending.size());
+    }
+
+    public synchronized void close()
+    {
+        if (buffer != null)
+        {
+            buffer.force();
+            buffer = null;
+        }
+
+        for (int i = 0; i < channels.length; i++)
+        {
+            try
+            {
+                if (channels[i] != null)
+                {
+                    channels[i].close();
+                }
+            }
+            catch (IOException e)
+            {
+                log.warn("Error closing event outbox", e);
+            }
+            channels[i] = null;
+        }
+    }
+
+    public synchronized void setDurability(OutboxDurability durability)
+    {
+        this.durability = durability;
+    }
+
+    // Journals the event and returns its sequence number, or -1 if it could not be written.
+    // The event counts as in flight until ack() or release() is called for it.
+    public synchronized long append(GameEvent event)
+    {
+        if (buffer == null)
+        {
+            return -1;
+        }
+
+        try
+        {
+            long sequence = nextSequence++;
+            byte[] payload = objectMapper.writeValueAsBytes(event);
+            write(TYPE_EVENT, sequence, payload);
+            pending.put(sequence, event);
+            recordSizes.put(sequence, HEADER_SIZE + payload.length);
+            inFlight.add(sequence);
+            if (durability == OutboxDurability.EVERY_EVENT)
+            {
+                sync();
+            }
+            return sequence;
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to journal event, sending without a durable copy", e);
+            return -1;
+        }
+    }
+
+    // Marks the event as done, accepted by the server or rejected for good
+    public synchronized void ack(long sequence)
+    {
+        inFlight.remove(sequence);
+        Integer recordSize = recordSizes.remove(sequence);
+        if (pending.remove(sequence) == null || buffer == null)
+        {
+            return;
+        }
+
+        try
+        {
+            write(TYPE_ACK, sequence, new byte[0]);
+            deadBytes += (recordSize != null ? recordSize : HEADER_SIZE) + HEADER_SIZE;
+            if (deadBytes >= COMPACT_THRESHOLD)
+            {
+                compact();
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to journal ack for event {}", sequence, e);
+        }
+    }
+
+    // Releases an event whose send failed so the next replay picks it up again
+    public synchronized void release(long sequence)
+    {
+        inFlight.remove(sequence);
+    }
+
+    // Returns the pending events that are not currently being sent and marks them in flight
+    public synchronized Map<Long, GameEvent> takeUnsent()
+    {
+        Map<Long, GameEvent> unsent = new LinkedHashMap<>();
+        for (Map.Entry<Long, GameEvent> entry : pending.entrySet())
+        {
+            if (inFlight.add(entry.getKey()))
+            {
+                unsent.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return unsent;
+    }
+
+    public synchronized int getPendingCount()
+    {
+        return pending.size();
+    }
+
+    // Forces written records to disk, used by the periodic durability mode
+    public synchronized void sync()
+    {
+        if (buffer != null && dirty)
+        {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    private void write(byte type, long sequence, byte[] payload) throws IOException
+    {
+        ensureCapacity(HEADER_SIZE + payload.length + HEADER_SIZE);
+        crc.reset();
+        crc.update(payload);
+
+        int start = buffer.position();
+        buffer.position(start + 5);
+        buffer.putLong(sequence);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        // Terminate the journal after this record, older data may follow in a reused file
+        buffer.put(buffer.position() + 4, TYPE_END);
+        buffer.putInt(start, payload.length);
+        buffer.put(start + 4, type);
+        dirty = true;
+    }
+
+    private void ensureCapacity(int needed) throws IOException
+    {
+        if (buffer.remaining() >= needed)
+        {
+            return;
+        }
+
+        int position = buffer.position();
+        long size = buffer.capacity();
+        while (size - position < needed)
+        {
+            size *= 2;
+        }
+        buffer.force();
+        buffer = map(active, size);
+        buffer.position(position);
+    }
+
+    private MappedByteBuffer map(int index, long size) throws IOException
+    {
+        if (channels[index] == null)
+        {
+            channels[index] = FileChannel.open(files[index].toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channels[index].map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void recover()
+    {
+        pending.clear();
+        recordSizes.clear();
+        inFlight.clear();
+        deadBytes = 0;
+
+        buffer.position(FILE_HEADER_SIZE);
+        while (buffer.remaining() >= HEADER_SIZE)
+        {
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            byte type = buffer.get(start + 4);
+            if (type == TYPE_END || length < 0 || length > buffer.capacity() - start - HEADER_SIZE)
+            {
+                break;
+            }
+
+            long sequence = buffer.getLong(start + 5);
+            int checksum = buffer.getInt(start + 13);
+            byte[] payload = new byte[length];
+            buffer.position(start + HEADER_SIZE);
+            buffer.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum)
+            {
+                log.warn("Event outbox ends with a torn record at offset {}, discarding it", start);
+                buffer.position(start);
+                break;
+            }
+
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (type == TYPE_EVENT)
+            {
+                try
+                {
+                    pending.put(sequence, objectMapper.readValue(payload, GameEvent.class));
+                    recordSizes.put(sequence, HEADER_SIZE + length);
+                }
+                catch (IOException e)
+                {
+                    log.warn("Skipping unreadable event {} in outbox", sequence, e);
+                }
+            }
+            else if (type == TYPE_ACK && pending.remove(sequence) != null)
+            {
+                deadBytes += recordSizes.remove(sequence) + HEADER_SIZE;
+            }
+        }
+
+        if (buffer.remaining() > 4)
+        {
+            buffer.put(buffer.position() + 4, TYPE_END);
+        }
+    }
+
+    // Copies the pending events into the other journal file and makes it the live one
+    private void compact() throws IOException
+    {
+        int target = 1 - active;
+        MappedByteBuffer previous = buffer;
+
+        buffer = map(target, INITIAL_SIZE);
+        // Invalidate the target first so a crash half way leaves the current journal live
+        buffer.putLong(0, 0);
+        buffer.force();
+
+        active = target;
+        buffer.position(FILE_HEADER_SIZE);
+        // The target still holds records from two generations ago, end it before they can be
+        // read back. Each write() ends the journal again after its record.
+        buffer.put(FILE_HEADER_SIZE + 4, TYPE_END);
+        for (Map.Entry<Long, GameEvent> entry : pending.entrySet())
+        {
+            byte[] payload = objectMapper.writeValueAsBytes(entry.getValue());
+            write(TYPE_EVENT, entry.getKey(), payload);
+            recordSizes.put(entry.getKey(), HEADER_SIZE + payload.length);
+        }
+        buffer.force();
+
+        previous.force();
+        buffer.putLong(0, ++generation);
+        buffer.force();
+
+        deadBytes = 0;
+        dirty = false;
+        log.debug("Compacted event outbox into {} with {} pending events", files[active], pending.size());
+    }
+}
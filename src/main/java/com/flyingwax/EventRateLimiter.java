@@ -0,0 +1,203 @@
+package com.flyingwax;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Token bucket in front of event uploads with two lanes. Urgent kinds (deaths and
+// milestones) bypass the bucket and are flushed at once, so they never wait behind bulk
+// traffic. Everything else spends a token, or waits in a bounded FIFO queue that drains as
+// tokens refill. When that queue is full a new event with a durable copy is turned away: its
+// future completes with FAILED, which leaves it in the outbox to be replayed once traffic
+// calms down. An event without one (the outbox could not be opened) is queued regardless,
+// since rejecting it would lose it.
+@Slf4j
+public class EventRateLimiter
+{
+    public static final Set<EventKind> URGENT_KINDS = EnumSet.of(EventKind.DEATH, EventKind.MILESTONE);
+
+    public interface Sender
+    {
+        // urgent asks the sender to upload right away instead of waiting to fill a batch
+        CompletableFuture<SendResult> send(String serverUrl, String groupId, GameEvent event, boolean urgent);
+    }
+
+    private final double tokensPerMilli;
+    private final int burst;
+    private final int maxQueued;
+    private final ScheduledExecutorService scheduler;
+    private final Sender sender;
+
+    // Guarded by this
+    private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+    private double tokens;
+    private long lastRefill;
+    private ScheduledFuture<?> drainTask;
+    // Events rejected since the queue last ran empty, logged once per burst
+    private long rejected;
+
+    public EventRateLimiter(double eventsPerSecond, int burst, int maxQueued, ScheduledExecutorService scheduler, Sender sender)
+    {
+        this.tokensPerMilli = eventsPerSecond / 1000.0;
+        this.burst = burst;
+        this.maxQueued = maxQueued;
+        this.scheduler = scheduler;
+        this.sender = sender;
+        this.tokens = burst;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    // durable tells whether the event is also kept in the outbox, only then may it be rejected
+    public CompletableFuture<SendResult> submit(String serverUrl, String groupId, GameEvent event, boolean durable)
+    {
+        if (event.getKind() != null && URGENT_KINDS.contains(event.getKind()))
+        {
+            return sender.send(serverUrl, groupId, event, true);
+        }
+
+        synchronized (this)
+        {
+            refill(System.currentTimeMillis());
+            if (queue.isEmpty() && tokens >= 1)
+            {
+                tokens -= 1;
+            }
+            else if (queue.size() >= maxQueued && durable)
+            {
+                if (rejected++ == 0)
+                {
+                    log.warn("Event queue full, deferring events to the outbox until it drains");
+                }
+                return CompletableFuture.completedFuture(SendResult.FAILED);
+            }
+            else
+            {
+                Queued queued = new Queued(serverUrl, groupId, event, durable);
+                queue.add(queued);
+                scheduleDrain();
+                return queued.result;
+            }
+        }
+
+        return sender.send(serverUrl, groupId, event, false);
+    }
+
+    // Empties the queue, e.g. on shutdown. Durable events fail and stay in the outbox, the
+    // others have no copy to come back from and are handed to the sender right away, so a
+    // flush after this still uploads them.
+    public void clear()
+    {
+        List<Queued> dropped;
+        synchronized (this)
+        {
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            rejected = 0;
+            if (drainTask != null)
+            {
+                drainTask.cancel(false);
+                drainTask = null;
+            }
+        }
+        for (Queued queued : dropped)
+        {
+            if (queued.durable)
+            {
+                queued.result.complete(SendResult.FAILED);
+            }
+            else
+            {
+                send(queued);
+            }
+        }
+    }
+
+    public synchronized int getQueued()
+    {
+        return queue.size();
+    }
+
+    private void drain()
+    {
+        List<Queued> ready = new ArrayList<>();
+        synchronized (this)
+        {
+            drainTask = null;
+            refill(System.currentTimeMillis());
+            while (tokens >= 1 && !queue.isEmpty())
+            {
+                tokens -= 1;
+                ready.add(queue.poll());
+            }
+            if (!queue.isEmpty())
+            {
+                scheduleDrain();
+            }
+            else if (rejected > 0)
+            {
+                log.info("Event queue drained, {} deferred events will be replayed from the outbox", rejected);
+                rejected = 0;
+            }
+        }
+
+        ready.forEach(this::send);
+    }
+
+    private void send(Queued queued)
+    {
+        sender.send(queued.serverUrl, queued.groupId, queued.event, false).whenComplete((result, ex) ->
+            queued.result.complete(ex == null ? result : SendResult.FAILED));
+    }
+
+    // Called with the lock held; wakes up when the next token is due
+    private void scheduleDrain()
+    {
+        if (drainTask != null)
+        {
+            return;
+        }
+
+        long delay = (long) Math.ceil(Math.max(0, 1 - tokens) / tokensPerMilli);
+        try
+        {
+            drainTask = scheduler.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // Shutting down, whatever is queued stays in the outbox
+            log.debug("Not draining event queue, scheduler is shut down");
+        }
+    }
+
+    private void refill(long now)
+    {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerMilli);
+        lastRefill = now;
+    }
+
+    private static class Queued
+    {
+        private final String serverUrl;
+        private final String groupId;
+        private final GameEvent event;
+        private final boolean durable;
+        private final CompletableFuture<SendResult> result = new CompletableFuture<>();
+
+        Queued(String serverUrl, String groupId, GameEvent event, boolean durable)
+        {
+            this.serverUrl = serverUrl;
+            this.groupId = groupId;
+            this.event = event;
+            this.durable = durable;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import java.awt.*;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
 
 @Slf4j
@@ -18,8 +19,16 @@ public class FeedPanel extends JPanel
     private final IronTrials plugin;
     private final JPanel contentPanel;
     private final List<GameEvent> events = new ArrayList<>();
+    // Newest events of other group members from the last refresh, newest first
+    private final List<GameEvent> groupEvents = new ArrayList<>();
+    // Pages read from the local history, shown below the live events, newest first
+    private final List<GameEvent> olderEvents = new ArrayList<>();
+    // Timestamp the next history page starts before, only moved by the pages themselves
+    private long historyBefore = Long.MAX_VALUE;
+    private final JButton loadOlderButton = new JButton("Load older");
+    // Only events of this kind are shown if set, looked up in the plugin's event index
+    private EventKind kindFilter;
     private final SimpleDateFormat timeFormat = new SimpleDateFormat("MMM dd, HH:mm");
-    private static final int MAX_DISPLAY_EVENTS = 20;
 
     public FeedPanel(IronTrials plugin)
     {
@@ -34,7 +43,24 @@ public class FeedPanel extends JPanel
         titleLabel.setFont(FontManager.getRunescapeBoldFont());
         titleLabel.setForeground(Color.WHITE);
         titleLabel.setBorder(new EmptyBorder(0, 0, 10, 0));
-        add(titleLabel, BorderLayout.NORTH);
+
+        JComboBox<Object> kindBox = new JComboBox<>();
+        kindBox.addItem("All events");
+        for (EventKind kind : EventKind.values())
+        {
+            kindBox.addItem(kind);
+        }
+        kindBox.addActionListener(e -> {
+            Object selected = kindBox.getSelectedItem();
+            kindFilter = selected instanceof EventKind ? (EventKind) selected : null;
+            loadEvents();
+        });
+
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
+        headerPanel.add(titleLabel, BorderLayout.WEST);
+        headerPanel.add(kindBox, BorderLayout.EAST);
+        add(headerPanel, BorderLayout.NORTH);
 
         // Content panel
         contentPanel = new JPanel();
@@ -46,17 +72,61 @@ public class FeedPanel extends JPanel
         scrollPane.getVerticalScrollBar().setPreferredSize(new Dimension(8, 0));
         add(scrollPane, BorderLayout.CENTER);
 
-        // Load initial events
+        loadOlderButton.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        loadOlderButton.setForeground(Color.WHITE);
+        loadOlderButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        loadOlderButton.addActionListener(e -> loadOlder());
+
+        // Load initial events, and the newest history so a restart does not start empty
         loadEvents();
+        loadOlder();
+    }
+
+    // Appends the next page of history. The first page starts from the newest event, events
+    // already in the live feed are skipped rather than used as the cursor, since those can be
+    // older than what the history holds (the demo events are).
+    private void loadOlder()
+    {
+        loadOlderButton.setEnabled(false);
+        plugin.getHistory(null, historyBefore, maxItems()).thenAccept(page -> SwingUtilities.invokeLater(() -> {
+            for (GameEvent event : page)
+            {
+                historyBefore = Math.min(historyBefore, event.getTimestamp());
+                if (!isShown(event, events) && !isShown(event, olderEvents))
+                {
+                    olderEvents.add(event);
+                }
+            }
+            loadOlderButton.setEnabled(!page.isEmpty());
+            loadOlderButton.setText(page.isEmpty() ? "No older events" : "Load older");
+            updateDisplay();
+        }));
+    }
+
+    // Events with ids match by id, so a copy read back from the history counts as shown
+    private static boolean isShown(GameEvent event, List<GameEvent> shown)
+    {
+        for (GameEvent other : shown)
+        {
+            if (event.getId() != null ? event.getId().equals(other.getId()) : event.equals(other))
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     public void addEvent(GameEvent event)
     {
         SwingUtilities.invokeLater(() -> {
+            if (kindFilter != null && kindFilter != event.getKind())
+            {
+                return;
+            }
             events.add(0, event); // Add to beginning
             
             // Keep only the most recent events
-            if (events.size() > MAX_DISPLAY_EVENTS)
+            if (events.size() > maxItems())
             {
                 events.remove(events.size() - 1);
             }
@@ -67,17 +137,66 @@ public class FeedPanel extends JPanel
 
     public void updateData(GroupData groupData)
     {
-        // This method is called from the main panel refresh
-        // We'll keep the existing events but could add group-wide events here
+        // This method is called from the main panel refresh, group events arrive through addGroupEvents
+        loadEvents();
+    }
+
+    // Adds events from the incremental sync and redraws the feed
+    public void addGroupEvents(List<GameEvent> newEvents)
+    {
+        newEvents.forEach(this::addGroupEvent);
         loadEvents();
     }
 
+    // Keeps a group event if it is among the newest, our own events are already in the feed
+    private void addGroupEvent(GameEvent event)
+    {
+        String playerName = plugin.getConfig().playerName();
+        if (playerName.equals(event.getPlayerName()) || groupEvents.contains(event))
+        {
+            return;
+        }
+
+        int index = 0;
+        while (index < groupEvents.size() && groupEvents.get(index).getTimestamp() >= event.getTimestamp())
+        {
+            index++;
+        }
+        if (index < maxItems())
+        {
+            groupEvents.add(index, event);
+            if (groupEvents.size() > maxItems())
+            {
+                groupEvents.remove(groupEvents.size() - 1);
+            }
+        }
+    }
+
+    private int maxItems()
+    {
+        return Math.max(1, plugin.getConfig().feedMaxItems());
+    }
+
     private void loadEvents()
     {
-        // Load events from the plugin
+        if (kindFilter != null)
+        {
+            events.clear();
+            events.addAll(plugin.queryEvents(EnumSet.of(kindFilter), null, Long.MIN_VALUE, Long.MAX_VALUE, maxItems()));
+            updateDisplay();
+            return;
+        }
+
+        // Merge the plugin's own events with the group's, newest first
         List<GameEvent> pluginEvents = plugin.getRecentEvents();
         events.clear();
         events.addAll(pluginEvents);
+        events.addAll(groupEvents);
+        events.sort((a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+        if (events.size() > maxItems())
+        {
+            events.subList(maxItems(), events.size()).clear();
+        }
         updateDisplay();
     }
 
@@ -85,7 +204,7 @@ public class FeedPanel extends JPanel
     {
         contentPanel.removeAll();
         
-        if (events.isEmpty())
+        if (events.isEmpty() && olderEvents.isEmpty())
         {
             JLabel noEventsLabel = new JLabel("No events yet");
             noEventsLabel.setForeground(ColorScheme.LIGHT_GRAY_COLOR);
@@ -101,7 +220,16 @@ public class FeedPanel extends JPanel
                 contentPanel.add(eventPanel);
                 contentPanel.add(Box.createVerticalStrut(5));
             }
+            for (GameEvent event : olderEvents)
+            {
+                if (!isShown(event, events) && (kindFilter == null || kindFilter == event.getKind()))
+                {
+                    contentPanel.add(createEventPanel(event));
+                    contentPanel.add(Box.createVerticalStrut(5));
+                }
+            }
         }
+        contentPanel.add(loadOlderButton);
 
         contentPanel.revalidate();
         contentPanel.repaint();
@@ -198,18 +326,22 @@ public class FeedPanel extends JPanel
 
     private String getEventDetails(GameEvent event)
     {
+        EventMetadata metadata = event.getMetadata();
+        if (event.getKind() == null)
+        {
+            // A kind this version does not know, e.g. read back from the history
+            return "";
+        }
         switch (event.getKind())
         {
             case LEVEL_UP:
-                String xpStr = event.getMetadata() != null && event.getMetadata().startsWith("xp:") 
-                    ? event.getMetadata().substring(3) : "0";
-                return "Level " + event.getPoints() + " • " + formatXP(Integer.parseInt(xpStr)) + " XP";
+                return "Level " + event.getPoints() + " • " + formatXP(metadata != null ? metadata.getXp() : 0) + " XP";
             case QUEST_COMPLETED:
                 return "Quest completed";
             case BOSS_KILL:
-                return "Kill count: " + event.getPoints();
+                return "Kill count: " + (metadata != null && metadata.getKillCount() > 0 ? metadata.getKillCount() : event.getPoints());
             case RARE_DROP:
-                return "Rare drop!";
+                return metadata != null && metadata.getValue() > 0 ? "Rare drop! " + formatXP(metadata.getValue()) + " gp" : "Rare drop!";
             case DEATH:
                 return "Player died";
             default:
@@ -217,7 +349,7 @@ public class FeedPanel extends JPanel
         }
     }
 
-    private String formatXP(int xp)
+    private String formatXP(long xp)
     {
         if (xp >= 1000000)
         {
@@ -3,6 +3,7 @@ package com.flyingwax;
 import lombok.Data;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import java.util.List;
 
 @Data
 @AllArgsConstructor
@@ -15,5 +16,25 @@ public class GameEvent
     private String description;
     private long timestamp;
     private int points;
-    private String metadata;
-} 
\ No newline at end of file
+    private EventMetadata metadata;
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class EventBatchResponse
+{
+    // One entry per uploaded event, in the order they were sent
+    private List<Boolean> results;
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class EventSyncResponse
+{
+    // Events newer than the requested cursor, oldest first
+    private List<GameEvent> events;
+    // Opaque position to pass as "since" on the next request
+    private String cursor;
+}
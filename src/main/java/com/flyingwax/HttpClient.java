@@ -1,145 +1,735 @@
 package com.flyingwax;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Slf4j
 public class HttpClient
 {
+    // OkHttp never runs more than MAX_REQUESTS calls at once, so the pool never needs more threads
+    private static final int MAX_REQUESTS = 4;
+    private static final int MAX_QUEUED_TASKS = 64;
+    private static final int EVENT_BATCH_SIZE = 20;
+    private static final long EVENT_BATCH_DELAY_MS = 2000;
+    // Sustained upload rate for non-urgent events, see EventRateLimiter
+    private static final double EVENTS_PER_SECOND = 1;
+    private static final int EVENT_BURST = 10;
+    private static final int MAX_QUEUED_EVENTS = 100;
+    // Ids of uploaded events the server accepted, enough to cover a long outbox replay
+    private static final int ACCEPTED_IDS = 10_000;
+    // Idempotent GETs are retried with exponential backoff and full jitter
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BASE_MS = 500;
+    private static final long RETRY_MAX_MS = 8000;
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MS = 5000;
+    private static final long CIRCUIT_MAX_OPEN_MS = 120_000;
+    private static final long FLIGHT_RESULT_TTL_MS = 2000;
+    private static final long CACHE_SIZE = 10L * 1024 * 1024;
+    // One idle connection per concurrent call is enough. They are kept a while, so the burst
+    // of events after login reuses the connection opened by warmUp.
+    private static final int MAX_IDLE_CONNECTIONS = MAX_REQUESTS;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long DNS_TTL_MS = 5 * 60 * 1000;
+    // Suffix for memoizing streamed results separately from fully bound ones
+    private static final String STREAMED = "#streamed";
+    // Makes OkHttp revalidate cached responses with If-None-Match/If-Modified-Since every time
+    private static final CacheControl REVALIDATE = new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build();
+
+    // Endpoint names, each has its own circuit breaker
+    public static final String GROUP_ENDPOINT = "group";
+    public static final String EVENTS_ENDPOINT = "events";
+    public static final String SYNC_ENDPOINT = "sync";
+    public static final String XP_ENDPOINT = "xp";
+    public static final String BINGO_ENDPOINT = "bingo";
+    public static final String CONFIG_ENDPOINT = "config";
+    // Not behind a circuit breaker, only used to label the push channel's and warm-up's timings
+    public static final String PUSH_ENDPOINT = "push";
+    public static final String WARMUP_ENDPOINT = "warmup";
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService scheduler;
+    private final EventBatcher eventBatcher;
+    private final EventRateLimiter rateLimiter;
+    private final RecentIds acceptedIds = new RecentIds(ACCEPTED_IDS);
     private final OkHttpClient client;
+    private final NetworkStats networkStats = new NetworkStats();
     private final ObjectMapper objectMapper;
+    private final Map<WireFormat, Codec> codecs = new EnumMap<>(WireFormat.class);
+    // Preferred format for uploads and Accept headers, JSON again if the server rejects it
+    private volatile WireFormat wireFormat = WireFormat.JSON;
+    private final Map<String, CircuitBreaker> circuits = new ConcurrentHashMap<>();
+    private volatile BiConsumer<String, CircuitBreaker.State> circuitListener;
+    // Parsed bodies of cached responses by URL, returned as is while the server answers 304
+    private final Map<String, ParsedBody> parsedBodies = new ConcurrentHashMap<>();
+    // Concurrent fetches of the same URL share one call, results are reused briefly
+    private final SingleFlight<GroupData> groupFlights = new SingleFlight<>(FLIGHT_RESULT_TTL_MS);
+    private final SingleFlight<List<BingoData>> bingoFlights = new SingleFlight<>(FLIGHT_RESULT_TTL_MS);
 
-    public HttpClient()
+    public HttpClient(File cacheDirectory, boolean http2)
     {
-        this.client = new OkHttpClient();
-        this.objectMapper = new ObjectMapper();
+        // Calls and their response parsing run on this plugin-owned pool rather than
+        // the shared ForkJoinPool common pool
+        this.executor = new ThreadPoolExecutor(MAX_REQUESTS, MAX_REQUESTS, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(MAX_QUEUED_TASKS),
+            new ThreadFactoryBuilder().setNameFormat("iron-trials-http-%d").setDaemon(true).build());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS);
+
+        this.client = new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .cache(new Cache(cacheDirectory, CACHE_SIZE))
+            .eventListenerFactory(networkStats)
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .dns(new CachingDns(DNS_TTL_MS))
+            // HTTP/2 is only negotiated over TLS, where it multiplexes all calls on one connection
+            .protocols(http2 ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) : Collections.singletonList(Protocol.HTTP_1_1))
+            // Fail well before OkHttp's defaults so a dead server does not hold threads and sockets
+            .connectTimeout(5, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .writeTimeout(10, TimeUnit.SECONDS)
+            .callTimeout(20, TimeUnit.SECONDS)
+            .build();
+        for (WireFormat format : WireFormat.values())
+        {
+            codecs.put(format, new Codec(format.createMapper()));
+        }
+        this.objectMapper = codecs.get(WireFormat.JSON).mapper;
+
+        // Timers for batching and other delayed work, kept off the network threads
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("iron-trials-http-scheduler").setDaemon(true).build());
+        this.eventBatcher = new EventBatcher(EVENT_BATCH_SIZE, EVENT_BATCH_DELAY_MS, scheduler, this::sendEvents);
+        this.rateLimiter = new EventRateLimiter(EVENTS_PER_SECOND, EVENT_BURST, MAX_QUEUED_EVENTS, scheduler, eventBatcher::add);
     }
 
-    public CompletableFuture<GroupData> getGroupData(String serverUrl, String groupId)
+    public void shutdown()
     {
-        return CompletableFuture.supplyAsync(() -> {
+        // Give batched events one last chance to go out before the pools stop. Rate limited
+        // ones stay in the outbox for the next session, unless they have no outbox copy, then
+        // clear() moves them into the last batches.
+        rateLimiter.clear();
+        eventBatcher.flushAll();
+        scheduler.shutdown();
+        executor.shutdown();
+        client.connectionPool().evictAll();
+        // Close the cache so a restarted plugin can open the directory again, two open caches
+        // on one directory corrupt it. Responses still in flight just are not cached.
+        Cache cache = client.cache();
+        if (cache != null)
+        {
             try
             {
-                String url = serverUrl + "/v1/groups/" + groupId;
-                log.info("Making HTTP request to: {}", url);
-                Request request = new Request.Builder()
-                    .url(url)
-                    .get()
-                    .build();
-
-                try (Response response = client.newCall(request).execute())
-                {
-                    log.info("HTTP response: {} {}", response.code(), response.message());
-                    if (response.isSuccessful() && response.body() != null)
-                    {
-                        String json = response.body().string();
-                        log.info("Received JSON response: {}", json.substring(0, Math.min(100, json.length())) + "...");
-                        return objectMapper.readValue(json, GroupData.class);
-                    }
-                    else
-                    {
-                        log.warn("Failed to get group data: {} {}", response.code(), response.message());
-                        return null;
-                    }
-                }
+                cache.flush();
+                cache.close();
             }
             catch (IOException e)
             {
-                log.error("Error getting group data", e);
+                log.warn("Error closing HTTP cache", e);
+            }
+        }
+    }
+
+    // Resolves the server's host and opens a pooled connection with a HEAD request, so the first
+    // real call doesn't pay for DNS, TCP and TLS. The response itself does not matter.
+    public void warmUp(String serverUrl)
+    {
+        HttpUrl url = HttpUrl.parse(serverUrl + "/v1/health");
+        if (url == null)
+        {
+            log.warn("Invalid server URL: {}", serverUrl);
+            return;
+        }
+
+        Request request = new Request.Builder().url(url).head().tag(String.class, WARMUP_ENDPOINT).build();
+        client.newCall(request).enqueue(new Callback()
+        {
+            @Override
+            public void onFailure(Call call, IOException e)
+            {
+                log.debug("Warm-up of {} failed: {}", url.host(), e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response)
+            {
+                response.close();
+                log.debug("Warmed up connection to {} over {}", url.host(), response.protocol());
+            }
+        });
+    }
+
+    // Called with the endpoint name whenever one of the circuit breakers changes state
+    public void setCircuitListener(BiConsumer<String, CircuitBreaker.State> listener)
+    {
+        this.circuitListener = listener;
+    }
+
+    // The least healthy state over all endpoints, used for the panel status
+    public CircuitBreaker.State getServerState()
+    {
+        CircuitBreaker.State worst = CircuitBreaker.State.CLOSED;
+        for (CircuitBreaker circuit : circuits.values())
+        {
+            CircuitBreaker.State state = circuit.getState();
+            if (state == CircuitBreaker.State.OPEN)
+            {
+                return state;
+            }
+            if (state == CircuitBreaker.State.HALF_OPEN)
+            {
+                worst = state;
+            }
+        }
+        return worst;
+    }
+
+    // Milliseconds until the first open circuit probes the server again
+    public long getRetryDelay()
+    {
+        long now = System.currentTimeMillis();
+        long delay = 0;
+        for (CircuitBreaker circuit : circuits.values())
+        {
+            long circuitDelay = circuit.getRetryDelay(now);
+            if (circuitDelay > 0 && (delay == 0 || circuitDelay < delay))
+            {
+                delay = circuitDelay;
+            }
+        }
+        return delay;
+    }
+
+    public CompletableFuture<GroupData> getGroupData(String serverUrl, String groupId)
+    {
+        String url = serverUrl + "/v1/groups/" + groupId;
+        return groupFlights.get(url, () -> enqueue(GROUP_ENDPOINT, groupRequest(url), true, null, "getting group data", response -> {
+            if (response.isSuccessful() && response.body() != null)
+            {
+                return readCached(url, response, r -> codecFor(r).groupReader.readValue(r.body().byteStream()));
+            }
+            else
+            {
+                log.warn("Failed to get group data: {} {}", response.code(), response.message());
+                return null;
+            }
+        }));
+    }
+
+    // The group without its recent events, which are skipped while decoding. This is what the
+    // roster views need; the feed gets its events from the incremental sync.
+    public CompletableFuture<GroupData> getRoster(String serverUrl, String groupId)
+    {
+        String url = serverUrl + "/v1/groups/" + groupId;
+        return groupFlights.get(url + STREAMED, () -> getGroupData(serverUrl, groupId, event -> {}));
+    }
+
+    // Streaming variant: recent events are handed to eventConsumer one at a time as they are
+    // decoded and are not kept in the returned GroupData. When the server reports the data
+    // unchanged the consumer is not called and the previous GroupData is returned. Every
+    // call needs its own consumer, so these calls are not coalesced.
+    public CompletableFuture<GroupData> getGroupData(String serverUrl, String groupId, Consumer<GameEvent> eventConsumer)
+    {
+        String url = serverUrl + "/v1/groups/" + groupId;
+        return enqueue(GROUP_ENDPOINT, groupRequest(url), true, null, "getting group data", response -> {
+            if (response.isSuccessful() && response.body() != null)
+            {
+                return readCached(url + STREAMED, response, r -> readGroupData(codecFor(r), r.body().byteStream(), eventConsumer));
+            }
+            else
+            {
+                log.warn("Failed to get group data: {} {}", response.code(), response.message());
                 return null;
             }
         });
     }
 
-    public CompletableFuture<Boolean> sendEvent(String serverUrl, String groupId, GameEvent event)
+    public NetworkStats getNetworkStats()
     {
-        return CompletableFuture.supplyAsync(() -> {
-            try
+        return networkStats;
+    }
+
+    public void setWireFormat(WireFormat wireFormat)
+    {
+        this.wireFormat = wireFormat;
+    }
+
+    // The push channel shares this client's connection pool, but holds its connection open far
+    // longer than a REST call may take and runs on its own thread
+    public PushChannel createPushChannel(PushChannel.Listener listener)
+    {
+        OkHttpClient streamClient = client.newBuilder()
+            .readTimeout(45, TimeUnit.SECONDS)
+            .callTimeout(0, TimeUnit.SECONDS)
+            .build();
+        return new PushChannel(streamClient, objectMapper, listener);
+    }
+
+    // Fetches the group events newer than cursor, or the most recent ones if cursor is null
+    public CompletableFuture<EventSyncResponse> getEventsSince(String serverUrl, String groupId, String cursor)
+    {
+        HttpUrl base = HttpUrl.parse(serverUrl + "/v1/groups/" + groupId + "/events");
+        if (base == null)
+        {
+            log.warn("Invalid server URL: {}", serverUrl);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        HttpUrl.Builder url = base.newBuilder();
+        if (cursor != null)
+        {
+            url.addQueryParameter("since", cursor);
+        }
+
+        Request request = new Request.Builder()
+            .url(url.build())
+            .header("Accept", wireFormat.getAccept())
+            // Every cursor is requested once, there is nothing worth caching
+            .cacheControl(new CacheControl.Builder().noStore().build())
+            .get()
+            .build();
+
+        return enqueue(SYNC_ENDPOINT, request, true, null, "syncing events", response -> {
+            if (response.isSuccessful() && response.body() != null)
+            {
+                return codecFor(response).syncResponseReader.readValue(response.body().byteStream());
+            }
+            else
             {
-                String url = serverUrl + "/v1/groups/" + groupId + "/events";
-                String json = objectMapper.writeValueAsString(event);
-                
-                RequestBody body = RequestBody.create(json, MediaType.get("application/json"));
-                Request request = new Request.Builder()
-                    .url(url)
-                    .post(body)
-                    .build();
+                log.warn("Failed to sync events: HTTP {}", response.code());
+                return null;
+            }
+        });
+    }
+
+    // Queues the event for upload, see EventRateLimiter and EventBatcher. Completes with
+    // REJECTED if the server refused the event, and with FAILED if the upload failed or the
+    // event was deferred because too many are waiting, which only happens to durable events
+    // (journaled in the outbox). An event whose id the server already accepted, e.g. replayed
+    // after its ack was lost, is not sent.
+    public CompletableFuture<SendResult> sendEvent(String serverUrl, String groupId, GameEvent event, boolean durable)
+    {
+        String id = event.getId();
+        if (id != null && acceptedIds.contains(id))
+        {
+            log.debug("Not resending event {}, the server already accepted it", id);
+            return CompletableFuture.completedFuture(SendResult.ACCEPTED);
+        }
 
-                try (Response response = client.newCall(request).execute())
+        CompletableFuture<SendResult> result = rateLimiter.submit(serverUrl, groupId, event, durable);
+        if (id != null)
+        {
+            result.thenAccept(sent -> {
+                if (sent == SendResult.ACCEPTED)
                 {
-                    return response.isSuccessful();
+                    acceptedIds.add(id);
                 }
+            });
+        }
+        return result;
+    }
+
+    public CompletableFuture<List<Boolean>> sendEvents(String serverUrl, String groupId, List<GameEvent> events)
+    {
+        String url = serverUrl + "/v1/groups/" + groupId + "/events/batch";
+        WireFormat format = wireFormat;
+        RequestBody body;
+        try
+        {
+            body = RequestBody.create(codecs.get(format).mapper.writeValueAsBytes(events), MediaType.get(format.getMediaType()));
+        }
+        catch (IOException e)
+        {
+            log.error("Error sending event batch", e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Request request = new Request.Builder()
+            .url(url)
+            .header("Accept", format.getAccept())
+            .post(body)
+            .build();
+
+        return enqueue(EVENTS_ENDPOINT, request, false, null, "sending event batch", response -> {
+            if (response.isSuccessful() && response.body() != null)
+            {
+                return codecFor(response).batchResponseReader.<EventBatchResponse>readValue(response.body().byteStream()).getResults();
             }
-            catch (IOException e)
+            else if (response.code() == 415 && format != WireFormat.JSON)
+            {
+                // The events stay in the outbox and are resent as JSON on the next replay
+                log.warn("Server does not accept {}, falling back to JSON", format);
+                wireFormat = WireFormat.JSON;
+                return null;
+            }
+            else
             {
-                log.error("Error sending event", e);
-                return false;
+                log.warn("Failed to send event batch: HTTP {}", response.code());
+                return null;
             }
         });
     }
 
+    public CompletableFuture<Boolean> sendXpSummary(String serverUrl, String groupId, XpSummary summary)
+    {
+        String url = serverUrl + "/v1/groups/" + groupId + "/xp";
+        return post(XP_ENDPOINT, url, summary, "sending XP summary");
+    }
+
     public CompletableFuture<List<BingoData>> getBingoData(String serverUrl, String groupId)
     {
-        return CompletableFuture.supplyAsync(() -> {
-            try
+        String url = serverUrl + "/v1/bingo/boards/" + groupId;
+        return bingoFlights.get(url, () -> enqueue(BINGO_ENDPOINT, groupRequest(url), true, null, "getting bingo data", response -> {
+            if (response.isSuccessful() && response.body() != null)
+            {
+                return readCached(url, response, r -> codecFor(r).bingoListReader.readValue(r.body().byteStream()));
+            }
+            else
             {
-                String url = serverUrl + "/v1/bingo/boards/" + groupId;
-                Request request = new Request.Builder()
-                    .url(url)
-                    .get()
-                    .build();
+                log.warn("Failed to get bingo data: {}", response.code());
+                return null;
+            }
+        }));
+    }
 
-                try (Response response = client.newCall(request).execute())
-                {
-                    if (response.isSuccessful() && response.body() != null)
-                    {
-                        String json = response.body().string();
-                        return objectMapper.readValue(json, objectMapper.getTypeFactory().constructCollectionType(List.class, BingoData.class));
-                    }
-                    else
+    // Streaming variant: boards are handed to boardConsumer one at a time as they are decoded.
+    // Completes with the number of boards, or null on failure. When the server reports the
+    // boards unchanged the consumer is not called and the previous count is returned.
+    public CompletableFuture<Integer> streamBingoData(String serverUrl, String groupId, Consumer<BingoData> boardConsumer)
+    {
+        String url = serverUrl + "/v1/bingo/boards/" + groupId;
+        return enqueue(BINGO_ENDPOINT, groupRequest(url), true, null, "getting bingo data", response -> {
+            if (response.isSuccessful() && response.body() != null)
+            {
+                return readCached(url + STREAMED, response, r -> {
+                    Codec codec = codecFor(r);
+                    try (JsonParser parser = codec.mapper.getFactory().createParser(r.body().byteStream()))
                     {
-                        log.warn("Failed to get bingo data: {}", response.code());
-                        return null;
+                        parser.nextToken();
+                        return streamArray(parser, codec.bingoReader, boardConsumer);
                     }
-                }
+                });
             }
-            catch (IOException e)
+            else
             {
-                log.error("Error getting bingo data", e);
+                log.warn("Failed to get bingo data: {}", response.code());
                 return null;
             }
         });
     }
 
-	public String downloadConfig(String url)
+	public CompletableFuture<String> downloadConfig(String url)
 	{
-		try
-		{
-			Request request = new Request.Builder()
-				.url(url)
-				.get()
-				.build();
-
-			try (Response response = client.newCall(request).execute())
+		Request request = new Request.Builder()
+			.url(url)
+			.cacheControl(REVALIDATE)
+			.get()
+			.build();
+
+		return enqueue(CONFIG_ENDPOINT, request, true, null, "downloading config", response -> {
+			if (response.isSuccessful() && response.body() != null)
 			{
-				if (response.isSuccessful() && response.body() != null)
-				{
-					return response.body().string();
-				}
-				else
-				{
-					log.warn("Failed to download config: HTTP {}", response.code());
-				}
+				return readCached(url, response, r -> r.body().string());
 			}
-		}
-		catch (Exception e)
-		{
-			log.error("Error downloading config", e);
-		}
-		return null;
+			else
+			{
+				log.warn("Failed to download config: HTTP {}", response.code());
+				return null;
+			}
+		});
 	}
-} 
\ No newline at end of file
+
+    private CompletableFuture<Boolean> post(String endpoint, String url, Object payload, String action)
+    {
+        String json;
+        try
+        {
+            json = objectMapper.writeValueAsString(payload);
+        }
+        catch (IOException e)
+        {
+            log.error("Error {}", action, e);
+            return CompletableFuture.completedFuture(false);
+        }
+
+        RequestBody body = RequestBody.create(json, MediaType.get("application/json"));
+        Request request = new Request.Builder()
+            .url(url)
+            .post(body)
+            .build();
+
+        return enqueue(endpoint, request, false, false, action, Response::isSuccessful);
+    }
+
+    // Runs the call on OkHttp's dispatcher and completes the future from its callback.
+    // Failures are logged and complete the future with the fallback value, as callers
+    // of this class check for null or false rather than handling exceptions. While the
+    // endpoint's circuit is open the call is not made at all. Idempotent calls are retried
+    // on I/O errors and 5xx responses.
+    private <T> CompletableFuture<T> enqueue(String endpoint, Request request, boolean idempotent, T fallback, String action, ResponseHandler<T> handler)
+    {
+        CircuitBreaker circuit = circuits.computeIfAbsent(endpoint, name -> new CircuitBreaker(name,
+            CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MS, CIRCUIT_MAX_OPEN_MS, this::onCircuitChanged));
+        CompletableFuture<T> future = new CompletableFuture<>();
+        // The endpoint tag lets NetworkStats attribute the call's timings
+        Request tagged = request.newBuilder().tag(String.class, endpoint).build();
+        attempt(circuit, tagged, idempotent ? MAX_ATTEMPTS : 1, 1, fallback, action, handler, future);
+        return future;
+    }
+
+    private <T> void attempt(CircuitBreaker circuit, Request request, int maxAttempts, int attempt, T fallback,
+        String action, ResponseHandler<T> handler, CompletableFuture<T> future)
+    {
+        if (!circuit.tryAcquire(System.currentTimeMillis()))
+        {
+            log.debug("Skipped {}, server is unavailable", action);
+            future.complete(fallback);
+            return;
+        }
+
+        client.newCall(request).enqueue(new Callback()
+        {
+            @Override
+            public void onFailure(Call call, IOException e)
+            {
+                circuit.onFailure(System.currentTimeMillis());
+                if (!retry(e.toString()))
+                {
+                    log.error("Error {}", action, e);
+                    future.complete(fallback);
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response)
+            {
+                try (Response r = response)
+                {
+                    // Server errors count against the circuit, client errors mean the server is up
+                    if (r.code() >= 500 || r.code() == 429)
+                    {
+                        circuit.onFailure(System.currentTimeMillis());
+                        if (retry("HTTP " + r.code()))
+                        {
+                            return;
+                        }
+                    }
+                    else
+                    {
+                        circuit.onSuccess();
+                    }
+                    future.complete(handler.handle(r));
+                }
+                catch (IOException | RuntimeException e)
+                {
+                    log.error("Error {}", action, e);
+                    future.complete(fallback);
+                }
+            }
+
+            private boolean retry(String reason)
+            {
+                if (attempt >= maxAttempts)
+                {
+                    return false;
+                }
+
+                long cap = Math.min(RETRY_MAX_MS, RETRY_BASE_MS << (attempt - 1));
+                long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+                try
+                {
+                    scheduler.schedule(() -> attempt(circuit, request, maxAttempts, attempt + 1, fallback, action, handler, future),
+                        delay, TimeUnit.MILLISECONDS);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    // Shutting down
+                    return false;
+                }
+                log.debug("Retrying {} in {}ms after {}", action, delay, reason);
+                return true;
+            }
+        });
+    }
+
+    // Returns the object parsed from the same cached body last time if the server confirmed it
+    // is unchanged (304) or it was served from cache, otherwise parses the body and remembers it
+    @SuppressWarnings("unchecked")
+    private <T> T readCached(String key, Response response, ResponseHandler<T> parser) throws IOException
+    {
+        String validator = response.header("ETag", response.header("Last-Modified"));
+        Response network = response.networkResponse();
+        boolean unchanged = network == null || network.code() == 304;
+
+        ParsedBody previous = parsedBodies.get(key);
+        if (unchanged && validator != null && previous != null && validator.equals(previous.validator))
+        {
+            log.debug("{} not modified, reusing parsed body", key);
+            return (T) previous.value;
+        }
+
+        T value = parser.handle(response);
+        if (validator != null && value != null)
+        {
+            parsedBodies.put(key, new ParsedBody(validator, value));
+        }
+        else
+        {
+            parsedBodies.remove(key);
+        }
+        return value;
+    }
+
+    private Request groupRequest(String url)
+    {
+        log.debug("Making HTTP request to: {}", url);
+        return new Request.Builder()
+            .url(url)
+            .header("Accept", wireFormat.getAccept())
+            .cacheControl(REVALIDATE)
+            .get()
+            .build();
+    }
+
+    // Decodes a group object field by field. The recentEvents array is streamed to the
+    // consumer; every other field is small and bound normally.
+    private static GroupData readGroupData(Codec codec, InputStream in, Consumer<GameEvent> eventConsumer) throws IOException
+    {
+        try (JsonParser parser = codec.mapper.getFactory().createParser(in))
+        {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+            {
+                throw new JsonParseException(parser, "Expected a group object");
+            }
+
+            ObjectNode fields = codec.mapper.createObjectNode();
+            while (parser.nextToken() == JsonToken.FIELD_NAME)
+            {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("recentEvents".equals(field))
+                {
+                    streamArray(parser, codec.eventReader, eventConsumer);
+                }
+                else
+                {
+                    fields.set(field, codec.mapper.readTree(parser));
+                }
+            }
+            return codec.groupReader.readValue(fields);
+        }
+    }
+
+    // Binds the elements of the array the parser is positioned on one at a time, so only
+    // a single element is held in memory. A JSON null counts as an empty array.
+    private static <T> int streamArray(JsonParser parser, ObjectReader reader, Consumer<T> consumer) throws IOException
+    {
+        if (parser.currentToken() == JsonToken.VALUE_NULL)
+        {
+            return 0;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY)
+        {
+            throw new JsonParseException(parser, "Expected an array");
+        }
+
+        int count = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY)
+        {
+            if (token == null)
+            {
+                throw new JsonParseException(parser, "Unexpected end of array");
+            }
+            T element = reader.readValue(parser);
+            consumer.accept(element);
+            count++;
+        }
+        return count;
+    }
+
+    // Responses are decoded by their Content-Type, whatever format was asked for
+    private Codec codecFor(Response response)
+    {
+        return codecs.get(WireFormat.fromContentType(response.header("Content-Type")));
+    }
+
+    private void onCircuitChanged(String endpoint, CircuitBreaker.State state)
+    {
+        BiConsumer<String, CircuitBreaker.State> listener = circuitListener;
+        if (listener != null)
+        {
+            listener.accept(endpoint, state);
+        }
+    }
+
+    private interface ResponseHandler<T>
+    {
+        T handle(Response response) throws IOException;
+    }
+
+    // A mapper and its readers for one wire format. Readers are immutable and cache their
+    // deserializers, so each one is built once.
+    private static class Codec
+    {
+        private final ObjectMapper mapper;
+        private final ObjectReader groupReader;
+        private final ObjectReader bingoReader;
+        private final ObjectReader bingoListReader;
+        private final ObjectReader eventReader;
+        private final ObjectReader batchResponseReader;
+        private final ObjectReader syncResponseReader;
+
+        Codec(ObjectMapper mapper)
+        {
+            this.mapper = mapper;
+            this.groupReader = mapper.readerFor(GroupData.class);
+            this.bingoReader = mapper.readerFor(BingoData.class);
+            this.bingoListReader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, BingoData.class));
+            this.eventReader = mapper.readerFor(GameEvent.class);
+            this.batchResponseReader = mapper.readerFor(EventBatchResponse.class);
+            this.syncResponseReader = mapper.readerFor(EventSyncResponse.class);
+        }
+    }
+
+    private static class ParsedBody
+    {
+        private final String validator;
+        private final Object value;
+
+        ParsedBody(String validator, Object value)
+        {
+            this.validator = validator;
+            this.value = value;
+        }
+    }
+}
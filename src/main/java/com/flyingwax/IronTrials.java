@@ -10,10 +10,13 @@ import net.runelite.api.GameState;
 import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.ChatMessage;
 import net.runelite.api.events.CommandExecuted;
+import net.runelite.client.RuneLite;
 import net.runelite.client.config.ConfigManager;
+import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
+import net.runelite.client.task.Schedule;
 import net.runelite.client.ui.ClientToolbar;
 import net.runelite.client.ui.NavigationButton;
 import net.runelite.client.util.ImageUtil;
@@ -22,11 +25,18 @@ import java.awt.Graphics2D;
 import java.awt.Color;
 import net.runelite.api.Skill;
 import net.runelite.api.events.StatChanged;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.SwingUtilities;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
 import java.io.IOException;
@@ -34,6 +44,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.awt.Dimension;
+import java.time.temporal.ChronoUnit;
 
 @Slf4j
 @PluginDescriptor(
@@ -53,23 +64,121 @@ public class IronTrials extends Plugin
 	@Inject
 	private Injector injector;
 
+	@Inject
+	private ScheduledExecutorService executor;
+
 	private NavigationButton navButton;
 	private IronTrialsPanel mainPanel;
 	private HttpClient httpClient;
-	private Map<Skill, Integer> previousLevels = new HashMap<>();
-	private List<GameEvent> recentEvents = new ArrayList<>();
-	private static final int MAX_EVENTS = 50; // Keep last 50 events
-	private MilestoneConfig milestoneConfig;
+	private final SkillSnapshot skillSnapshot = new SkillSnapshot(); // Client thread only
+	private final XpTracker xpTracker = new XpTracker(System.currentTimeMillis());
+	// Summaries whose upload failed, up to about an hour of intervals, the oldest are dropped first
+	private static final int MAX_UNSENT_SUMMARIES = 12;
+	private final List<XpSummary> unsentSummaries = new ArrayList<>(); // Guarded by itself
+	// Own events for the feed, written by the capture worker and read by the EDT.
+	// Replaced by a resized copy when feedMaxItems changes.
+	private volatile RingBuffer<GameEvent> recentEvents;
+	private volatile CompiledMilestones milestones; // Read by the capture worker
+	private volatile String milestoneVersion; // Version of the loaded remote config, null if unknown
+	private volatile String externalConfigContent; // Last external config file that loaded
+	private ConfigFileWatcher configWatcher;
+	// Bumped by every loadMilestoneConfig, background loads of an older source are dropped
+	private int milestoneGeneration; // Guarded by this
+	// Editors save in several writes, reload once the file has been quiet this long
+	private static final long CONFIG_RELOAD_DEBOUNCE_MS = 500;
+	// Settings that pick where milestones come from, changing one reloads them
+	private static final Set<String> MILESTONE_CONFIG_KEYS = Set.of("useRemoteConfig", "remoteConfigUrl",
+		"remoteGroupId", "useExternalConfig", "externalConfigPath", "milestoneLevels");
 	private GroupData groupData; // Store group data for roster filtering
 	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final ChatTemplateMatcher chatTemplates = ChatTemplateMatcher.defaults();
+	// Only touched by the capture worker
+	private final ChatMatch chatMatch = new ChatMatch();
+	private CapturePipeline capturePipeline;
+	private EventOutbox outbox;
+	private volatile EventHistory history;
+	private static final long HISTORY_RETENTION_SECONDS = 180L * 24 * 60 * 60;
+	private static final long HISTORY_MAX_BYTES = 64L << 20;
+	// Recent own and group events for filtered views, the newest are preloaded from the history
+	private static final int EVENT_INDEX_CAPACITY = 50_000;
+	private final EventIndex eventIndex = new EventIndex(EVENT_INDEX_CAPACITY);
+	// Ids of events already in the feed, so one coming back through sync or push is skipped
+	private static final int SEEN_IDS_CAPACITY = 10_000;
+	private final RecentIds seenIds = new RecentIds(SEEN_IDS_CAPACITY);
+	private PushChannel pushChannel;
+	private static final int CAPTURE_CAPACITY = 1024;
+	// Outbox journal and HTTP cache live here
+	private static final File DATA_DIR = new File(RuneLite.RUNELITE_DIR, "iron-trials");
+	// The feed is synced incrementally every SYNC_PERIOD_SECONDS, the roster every refreshInterval
+	private static final int SYNC_PERIOD_SECONDS = 10;
+	private final SyncCursors syncCursors = new SyncCursors(new File(DATA_DIR, "sync-cursors.json"), objectMapper);
+	private final AtomicBoolean syncInFlight = new AtomicBoolean();
+	private volatile long lastRosterRefresh;
 
 	@Override
 	protected void startUp() throws Exception
 	{
 		try
 		{
+			// A restart starts a new session, nothing from before counts towards its rates
+			xpTracker.reset(System.currentTimeMillis());
+
 			// Initialize HTTP client
-			httpClient = new HttpClient();
+			httpClient = new HttpClient(new File(DATA_DIR, "http-cache"), config.http2());
+			httpClient.setCircuitListener(this::onCircuitChanged);
+			httpClient.setWireFormat(config.wireFormat());
+			// Connect in the background while the rest starts up, ready for the login burst
+			httpClient.warmUp(config.serverUrl());
+			pushChannel = httpClient.createPushChannel(new PushListener());
+
+			// Open the outbox first so captured events are journaled from the start
+			outbox = new EventOutbox(DATA_DIR, objectMapper, config.outboxDurability());
+			try
+			{
+				outbox.open();
+			}
+			catch (IOException e)
+			{
+				log.warn("Failed to open event outbox, unsent events will not survive a restart", e);
+				outbox = null;
+			}
+
+			// Only the index files are read here, segments are mapped when the feed pages back
+			history = new EventHistory(new File(DATA_DIR, "history"), HISTORY_RETENTION_SECONDS, HISTORY_MAX_BYTES);
+			try
+			{
+				history.open();
+			}
+			catch (IOException e)
+			{
+				log.warn("Failed to open event history, the feed will start empty after a restart", e);
+				history = null;
+			}
+			if (history != null)
+			{
+				// Remember the ids of the newest events before anything is captured, replayed or
+				// synced. Added oldest first so the newest, the likeliest to come back, are kept
+				// longest, and before this session's own ids so none of those are evicted.
+				List<GameEvent> recent = history.page(null, Long.MAX_VALUE, SEEN_IDS_CAPACITY);
+				for (int i = recent.size() - 1; i >= 0; i--)
+				{
+					if (recent.get(i).getId() != null)
+					{
+						seenIds.add(recent.get(i).getId());
+					}
+				}
+
+				EventHistory preload = history;
+				executor.execute(() -> eventIndex.addAll(preload.page(null, Long.MAX_VALUE, EVENT_INDEX_CAPACITY)));
+			}
+
+			syncCursors.load();
+
+			recentEvents = new RingBuffer<>(feedCapacity());
+
+			// Start the capture worker before any subscriber can queue events
+			capturePipeline = new CapturePipeline(CAPTURE_CAPACITY, this::processCapture);
+			capturePipeline.start();
 			
 			        // Load milestone configuration
         loadMilestoneConfig();
@@ -90,6 +199,7 @@ public class IronTrials extends Plugin
 			// Create the main panel
 			mainPanel = new IronTrialsPanel(this);
 			mainPanel.init();
+			lastRosterRefresh = System.currentTimeMillis();
 			log.info("Main panel created and initialized");
 
 			// Create navigation button
@@ -100,6 +210,12 @@ public class IronTrials extends Plugin
 			clientToolbar.addNavigation(navButton);
 			log.info("Navigation button added to toolbar");
 
+			// Send whatever a previous session could not deliver
+			replayOutbox();
+
+			// Catch up on group events and go live without waiting for the first tick
+			syncGroup();
+
 			// Plugin startup complete
 			log.info("Iron Trials plugin started successfully");
 		}
@@ -110,125 +226,271 @@ public class IronTrials extends Plugin
 		}
 	}
 
+	// Remote and external configs start from the last good copy on disk and are refreshed in
+	// the background, so a slow server or disk never holds up startup
 	private void loadMilestoneConfig()
 	{
-		try
+		stopConfigWatcher();
+		externalConfigContent = null;
+		int generation = nextMilestoneGeneration();
+
+		if (config.useRemoteConfig() || config.useExternalConfig())
+		{
+			boolean remote = config.useRemoteConfig();
+			MilestoneConfigResponse cached = milestoneCache(remote).load();
+			// A copy cached for another group must not pass as the current version
+			if (cached != null && remote && cached.getGroupId() != null && !cached.getGroupId().equals(remoteGroupId()))
+			{
+				cached = null;
+			}
+			if (cached != null)
+			{
+				log.info("Using cached milestone config (version: {}) until the {} one loads",
+					cached.getVersion(), remote ? "remote" : "external");
+				applyMilestoneConfig(cached.getConfig(), cached.getVersion(), generation);
+			}
+			else
+			{
+				applyMilestoneConfig(MilestoneConfig.getDefault(), null, generation);
+			}
+
+			if (remote)
+			{
+				refreshRemoteConfig(generation);
+			}
+			else
+			{
+				executor.execute(() -> refreshExternalConfig(generation));
+				watchExternalConfig(generation);
+			}
+			return;
+		}
+
+		// Use plugin config
+		MilestoneConfig milestoneConfig = MilestoneConfig.getDefault();
+		// Override with plugin settings
+		String[] levels = config.milestoneLevels().split(",");
+		List<Integer> levelList = new ArrayList<>();
+		for (String level : levels)
+		{
+			try
+			{
+				levelList.add(Integer.parseInt(level.trim()));
+			}
+			catch (NumberFormatException e)
+			{
+				log.warn("Invalid level in config: {}", level);
+			}
+		}
+		milestoneConfig.setLevelMilestones(levelList);
+		applyMilestoneConfig(milestoneConfig, null, generation);
+	}
+
+	private synchronized int nextMilestoneGeneration()
+	{
+		return ++milestoneGeneration;
+	}
+
+	// Rebuilds the keyword matcher and swaps it in as a whole, the capture worker sees either
+	// the old or the new config but never a mix. Returns false without applying anything if
+	// the config was loaded for a source that has been replaced since.
+	private synchronized boolean applyMilestoneConfig(MilestoneConfig milestoneConfig, String version, int generation)
+	{
+		if (generation != milestoneGeneration)
 		{
-			if (config.useRemoteConfig())
+			return false;
+		}
+		milestones = CompiledMilestones.compile(milestoneConfig);
+		milestoneVersion = version;
+		return true;
+	}
+
+	private String remoteGroupId()
+	{
+		return config.remoteGroupId().isEmpty() ? config.groupId() : config.remoteGroupId();
+	}
+
+	private MilestoneConfigCache milestoneCache(boolean remote)
+	{
+		return new MilestoneConfigCache(new File(DATA_DIR, remote ? "milestones-remote.json" : "milestones-external.json"), objectMapper);
+	}
+
+	private void refreshRemoteConfig(int generation)
+	{
+		String groupId = remoteGroupId();
+		String url = config.remoteConfigUrl();
+
+		// Add group ID to URL if it's a parameter
+		if (url.contains("?"))
+		{
+			url += "&groupId=" + groupId;
+		}
+		else
+		{
+			url += "?groupId=" + groupId;
+		}
+
+		log.info("Downloading remote config from: {}", url);
+		httpClient.downloadConfig(url).thenAccept(response -> {
+			if (response == null || response.isEmpty())
 			{
-				// Download from remote server
-				milestoneConfig = downloadRemoteConfig();
-				if (milestoneConfig != null)
+				log.warn("Failed to download remote config, keeping the current one");
+				return;
+			}
+
+			try
+			{
+				// Unchanged versions are not bound or recompiled again
+				String version = readConfigVersion(response);
+				if (version != null && version.equals(milestoneVersion))
 				{
-					log.info("Successfully loaded remote milestone config");
+					log.debug("Remote milestone config is unchanged (version: {})", version);
 					return;
 				}
-				else
+
+				MilestoneConfigResponse remoteConfig = parseRemoteConfig(response);
+				if (!applyMilestoneConfig(remoteConfig.getConfig(), remoteConfig.getVersion(), generation))
 				{
-					log.warn("Failed to download remote config, falling back to defaults");
-					milestoneConfig = MilestoneConfig.getDefault();
+					log.debug("Dropping remote milestone config, the config source changed meanwhile");
+					return;
 				}
+				milestoneCache(true).save(remoteConfig);
+				log.info("Loaded remote config for group: {} (version: {})",
+					remoteConfig.getGroupId(), remoteConfig.getVersion());
 			}
-			else if (config.useExternalConfig())
+			catch (IOException e)
 			{
-				String configPath = config.externalConfigPath();
-				// Expand ~ to home directory
-				if (configPath.startsWith("~"))
-				{
-					configPath = System.getProperty("user.home") + configPath.substring(1);
-				}
-				
-				Path path = Paths.get(configPath);
-				if (Files.exists(path))
-				{
-					String jsonContent = Files.readString(path);
-					milestoneConfig = objectMapper.readValue(jsonContent, MilestoneConfig.class);
-					log.info("Loaded external milestone config from: {}", configPath);
-				}
-				else
-				{
-					log.warn("External config file not found: {}. Using defaults.", configPath);
-					milestoneConfig = MilestoneConfig.getDefault();
-					// Create the file with defaults
-					createDefaultConfigFile(path);
-				}
+				log.warn("Invalid remote config, keeping the current one: {}", e.getMessage());
 			}
-			else
+		});
+	}
+
+	// The top level "version" field of a server response, found without binding the rest
+	private String readConfigVersion(String response) throws IOException
+	{
+		try (JsonParser parser = objectMapper.getFactory().createParser(response))
+		{
+			if (parser.nextToken() != JsonToken.START_OBJECT)
+			{
+				return null;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME)
 			{
-				// Use plugin config
-				milestoneConfig = MilestoneConfig.getDefault();
-				// Override with plugin settings
-				String[] levels = config.milestoneLevels().split(",");
-				List<Integer> levelList = new ArrayList<>();
-				for (String level : levels)
+				String name = parser.getCurrentName();
+				parser.nextToken();
+				if ("version".equals(name))
 				{
-					try
-					{
-						levelList.add(Integer.parseInt(level.trim()));
-					}
-					catch (NumberFormatException e)
-					{
-						log.warn("Invalid level in config: {}", level);
-					}
+					return parser.getValueAsString();
 				}
-				milestoneConfig.setLevelMilestones(levelList);
+				parser.skipChildren();
 			}
+			return null;
 		}
-		catch (Exception e)
+	}
+
+	private MilestoneConfigResponse parseRemoteConfig(String response) throws IOException
+	{
+		// Try to parse as server response format first
+		try
 		{
-			log.warn("Failed to load milestone config, using defaults: {}", e.getMessage());
-			milestoneConfig = MilestoneConfig.getDefault();
+			MilestoneConfigResponse serverResponse = objectMapper.readValue(response, MilestoneConfigResponse.class);
+			if (serverResponse.getConfig() != null)
+			{
+				return serverResponse;
+			}
 		}
+		catch (IOException e)
+		{
+			log.debug("Response is not in server format, trying direct config format");
+		}
+
+		// Fallback to direct config format, which has no version
+		MilestoneConfig direct = objectMapper.readValue(response, MilestoneConfig.class);
+		return new MilestoneConfigResponse(null, null, null, direct);
 	}
 
-	private MilestoneConfig downloadRemoteConfig()
+	// Runs on the executor, both at startup and whenever the watcher sees the file change
+	private void refreshExternalConfig(int generation)
 	{
+		Path path = externalConfigPath();
+		if (!Files.exists(path))
+		{
+			log.warn("External config file not found: {}. Using defaults.", path);
+			if (!applyMilestoneConfig(MilestoneConfig.getDefault(), null, generation))
+			{
+				return;
+			}
+			// Create the file with defaults
+			createDefaultConfigFile(path);
+			return;
+		}
+
 		try
 		{
-			String groupId = config.remoteGroupId().isEmpty() ? config.groupId() : config.remoteGroupId();
-			String url = config.remoteConfigUrl();
-			
-			// Add group ID to URL if it's a parameter
-			if (url.contains("?"))
+			String content = Files.readString(path);
+			if (content.equals(externalConfigContent))
 			{
-				url += "&groupId=" + groupId;
+				return;
 			}
-			else
+
+			MilestoneConfig external = objectMapper.readValue(content, MilestoneConfig.class);
+			List<String> problems = external != null ? external.validate() : List.of("file is empty");
+			if (!problems.isEmpty())
 			{
-				url += "?groupId=" + groupId;
+				log.warn("Invalid external milestone config {}, keeping the current one: {}", path, problems);
+				return;
 			}
-			
-			log.info("Downloading remote config from: {}", url);
-			
-			// Use the existing HTTP client to download
-			String response = httpClient.downloadConfig(url);
-			if (response != null && !response.isEmpty())
+
+			if (!applyMilestoneConfig(external, null, generation))
 			{
-				// Try to parse as server response format first
-				try
-				{
-					MilestoneConfigResponse serverResponse = objectMapper.readValue(response, MilestoneConfigResponse.class);
-					if (serverResponse.getConfig() != null)
-					{
-						log.info("Loaded remote config for group: {} (version: {})", 
-							serverResponse.getGroupId(), serverResponse.getVersion());
-						return serverResponse.getConfig();
-					}
-				}
-				catch (Exception e)
-				{
-					log.debug("Response is not in server format, trying direct config format");
-				}
-				
-				// Fallback to direct config format
-				return objectMapper.readValue(response, MilestoneConfig.class);
+				log.debug("Dropping external milestone config, the config source changed meanwhile");
+				return;
 			}
+			externalConfigContent = content;
+			milestoneCache(false).save(new MilestoneConfigResponse(null, null, null, external));
+			log.info("Loaded external milestone config from: {}", path);
 		}
-		catch (Exception e)
+		catch (IOException e)
+		{
+			log.warn("Failed to read external milestone config, keeping the current one: {}", e.getMessage());
+		}
+	}
+
+	private Path externalConfigPath()
+	{
+		String configPath = config.externalConfigPath();
+		// Expand ~ to home directory
+		if (configPath.startsWith("~"))
+		{
+			configPath = System.getProperty("user.home") + configPath.substring(1);
+		}
+		return Paths.get(configPath);
+	}
+
+	// Reloads the external config when it is edited, so changes apply without a restart
+	private synchronized void watchExternalConfig(int generation)
+	{
+		Path path = externalConfigPath().toAbsolutePath();
+		try
+		{
+			Files.createDirectories(path.getParent());
+			configWatcher = new ConfigFileWatcher(path, CONFIG_RELOAD_DEBOUNCE_MS, executor, () -> refreshExternalConfig(generation));
+			configWatcher.start();
+		}
+		catch (IOException e)
 		{
-			log.warn("Failed to download remote config: {}", e.getMessage());
+			log.warn("Cannot watch {} for changes, edits apply after a restart: {}", path, e.getMessage());
+			configWatcher = null;
+		}
+	}
+
+	private synchronized void stopConfigWatcher()
+	{
+		if (configWatcher != null)
+		{
+			configWatcher.stop();
+			configWatcher = null;
 		}
-		return null;
 	}
 
 	    private void addTestEvents()
@@ -241,7 +503,7 @@ public class IronTrials extends Plugin
         levelUpEvent.setPlayerName("IronManPro");
         levelUpEvent.setDescription("Reached level 70 Attack");
         levelUpEvent.setPoints(70);
-        levelUpEvent.setMetadata("xp:737627");
+        levelUpEvent.setMetadata(EventMetadata.ofXp(737627));
         levelUpEvent.setTimestamp(currentTime - 300); // 5 minutes ago
         addEventToFeed(levelUpEvent);
         
@@ -250,7 +512,6 @@ public class IronTrials extends Plugin
         questEvent.setPlayerName("QuestMaster");
         questEvent.setDescription("Completed Dragon Slayer");
         questEvent.setPoints(25);
-        questEvent.setMetadata("quest:dragon_slayer");
         questEvent.setTimestamp(currentTime - 600); // 10 minutes ago
         addEventToFeed(questEvent);
         
@@ -259,7 +520,7 @@ public class IronTrials extends Plugin
         bossEvent.setPlayerName("BossSlayer99");
         bossEvent.setDescription("Killed Zulrah (KC: 100)");
         bossEvent.setPoints(100);
-        bossEvent.setMetadata("boss:zulrah");
+        bossEvent.setMetadata(EventMetadata.ofKillCount(100));
         bossEvent.setTimestamp(currentTime - 900); // 15 minutes ago
         addEventToFeed(bossEvent);
         
@@ -268,7 +529,7 @@ public class IronTrials extends Plugin
         dropEvent.setPlayerName("SkillerQueen");
         dropEvent.setDescription("Received Twisted Bow");
         dropEvent.setPoints(50);
-        dropEvent.setMetadata("item:twisted_bow");
+        dropEvent.setMetadata(EventMetadata.ofDrop(20997, 1, 0)); // Twisted bow
         dropEvent.setTimestamp(currentTime - 1200); // 20 minutes ago
         addEventToFeed(dropEvent);
         
@@ -309,6 +570,39 @@ public class IronTrials extends Plugin
 			
 			// Clear main panel
 			mainPanel = null;
+
+			stopConfigWatcher();
+
+			if (capturePipeline != null)
+			{
+				capturePipeline.stop();
+				capturePipeline = null;
+			}
+
+			if (pushChannel != null)
+			{
+				pushChannel.stop();
+				pushChannel = null;
+			}
+
+			if (httpClient != null)
+			{
+				httpClient.shutdown();
+			}
+
+			if (outbox != null)
+			{
+				outbox.close();
+				outbox = null;
+			}
+
+			if (history != null)
+			{
+				history.close();
+				history = null;
+			}
+
+			syncCursors.flush();
 			
 			log.info("Iron Trials plugin stopped");
 		}
@@ -321,8 +615,17 @@ public class IronTrials extends Plugin
     @Subscribe
     public void onGameStateChanged(GameStateChanged gameStateChanged)
     {
-        if (gameStateChanged.getGameState() == GameState.LOGGED_IN)
+        if (gameStateChanged.getGameState() == GameState.LOGIN_SCREEN)
+        {
+            // Another account may log in next, upload what this one gained and forget the old levels
+            uploadXpSummary();
+            skillSnapshot.reset();
+            xpTracker.reset(System.currentTimeMillis());
+        }
+        else if (gameStateChanged.getGameState() == GameState.LOGGED_IN)
         {
+            // Seed from the real levels so the login burst of StatChanged is not seen as level ups
+            skillSnapshot.seed(client.getRealSkillLevels(), client.getSkillExperiences());
             client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "Iron Trials plugin loaded! Type ::irontrials to test", null);
         }
     }
@@ -330,91 +633,116 @@ public class IronTrials extends Plugin
     @Subscribe
     public void onStatChanged(StatChanged statChanged)
     {
-        // Capture milestone level-ups only
-        if (config.captureLevelUps())
-        {
-            Skill skill = statChanged.getSkill();
-            int level = statChanged.getLevel();
-            int xp = statChanged.getXp();
-            
-            // Check if this is a level up (level increased)
-            if (level > getPreviousLevel(skill))
-            {
-                // Only capture milestone levels
-                if (isMilestoneLevel(level))
-                {
-                    log.info("Milestone level up detected: {} level {}", skill.getName(), level);
-                    sendEvent(EventKind.LEVEL_UP, skill.getName() + " " + level, level, xp);
-                }
-            }
-        }
+        Skill skill = statChanged.getSkill();
+        int level = statChanged.getLevel();
+        int previousLevel = skillSnapshot.update(skill, level);
+        int xpGained = skillSnapshot.updateXp(skill, statChanged.getXp());
+        capturePipeline.offerStat(skill, level, previousLevel, statChanged.getXp(), xpGained, client.getTickCount());
     }
 
     @Subscribe
     public void onChatMessage(ChatMessage chatMessage)
     {
         String message = chatMessage.getMessage();
-        log.info("Chat message received: {} (type: {})", message, chatMessage.getType());
-        
+
         // Listen for commands
-        if (message.toLowerCase().startsWith("::irontrials"))
+        if (message.regionMatches(true, 0, "::irontrials", 0, 12))
         {
             log.info("Iron Trials command detected!");
-            testPlugin();
+            String arguments = message.substring(12).trim();
+            runCommand(arguments.isEmpty() ? new String[0] : arguments.split("\\s+"));
             return;
         }
 
-        // Capture quest completions
-        if (config.captureQuests() && chatMessage.getType() == ChatMessageType.GAMEMESSAGE)
+        capturePipeline.offerChat(chatMessage.getType(), message, client.getTickCount());
+    }
+
+    // Runs on the capture worker thread for every record the subscribers queued
+    private void processCapture(CaptureRecord record)
+    {
+        switch (record.getType())
         {
-            if (message.contains("Congratulations! You have completed") || 
-                message.contains("You have completed") && message.contains("quest"))
-            {
-                String questName = extractQuestName(message);
-                if (questName != null && isSignificantAchievement(questName))
-                {
-                    log.info("Significant quest completion detected: {}", questName);
-                    sendEvent(EventKind.QUEST_COMPLETED, questName, 0, 0);
-                }
-            }
+            case CHAT:
+                processChatMessage(record.getChatType(), record.getMessage());
+                break;
+            case STAT:
+                processStatChanged(record.getSkill(), record.getLevel(), record.getPreviousLevel(), record.getXp(), record.getXpGained());
+                break;
         }
+    }
+
+    private void processStatChanged(Skill skill, int level, int previousLevel, int xp, int xpGained)
+    {
+        xpTracker.record(skill, xpGained, System.currentTimeMillis());
 
-        // Capture boss kills
-        if (config.captureBossKc() && chatMessage.getType() == ChatMessageType.GAMEMESSAGE)
+        // Capture milestone level-ups only. A previous level of 0 means the skill was
+        // not known yet, which is the initial sync rather than a level up.
+        if (config.captureLevelUps() && previousLevel > 0 && level > previousLevel)
         {
-            if (message.contains("Your kill count is:"))
+            int milestone = milestones != null ? milestones.highestMilestoneReached(previousLevel, level) : 0;
+            if (milestone > 0)
             {
-                String bossName = extractBossName(message);
-                int killCount = extractKillCount(message);
-                if (bossName != null && killCount > 0)
-                {
-                    log.info("Boss kill detected: {} (KC: {})", bossName, killCount);
-                    sendEvent(EventKind.BOSS_KILL, bossName, killCount, 0);
-                }
+                log.info("Milestone level up detected: {} level {}", skill.getName(), milestone);
+                sendEvent(EventKind.LEVEL_UP, skill.getName() + " " + milestone, milestone, EventMetadata.ofXp(xp));
             }
         }
+    }
 
-        // Capture rare drops
-        if (config.captureDrops() && chatMessage.getType() == ChatMessageType.GAMEMESSAGE)
+    private void processChatMessage(ChatMessageType type, String message)
+    {
+        log.debug("Chat message received: {} (type: {})", message, type);
+
+        if (type != ChatMessageType.GAMEMESSAGE || !chatTemplates.match(message, chatMatch))
         {
-            if (message.contains("You have received a") || 
-                message.contains("You received") ||
-                message.contains("You got"))
-            {
-                String itemName = extractItemName(message);
-                if (itemName != null && isRareDrop(itemName))
-                {
-                    log.info("Rare drop detected: {}", itemName);
-                    sendEvent(EventKind.RARE_DROP, itemName, 0, 0);
-                }
-            }
+            return;
         }
 
-        // Capture deaths
-        if (message.contains("You have died") || message.contains("Oh dear, you are dead"))
+        switch (chatMatch.getKind())
         {
-            log.info("Death detected");
-            sendEvent(EventKind.DEATH, "Player Death", 0, 0);
+            case QUEST_COMPLETED:
+                // Capture quest completions
+                if (config.captureQuests())
+                {
+                    String questName = chatMatch.getText("quest");
+                    if (questName != null && isSignificantAchievement(questName))
+                    {
+                        log.info("Significant quest completion detected: {}", questName);
+                        sendEvent(EventKind.QUEST_COMPLETED, questName, 0, null);
+                    }
+                }
+                break;
+            case BOSS_KILL:
+                // Capture boss kills
+                if (config.captureBossKc())
+                {
+                    String bossName = chatMatch.hasField("boss") ? chatMatch.getText("boss") : "Unknown Boss";
+                    int killCount = (int) chatMatch.getNumber("n");
+                    if (killCount > 0)
+                    {
+                        log.info("Boss kill detected: {} (KC: {})", bossName, killCount);
+                        sendEvent(EventKind.BOSS_KILL, bossName, killCount, EventMetadata.ofKillCount(killCount));
+                    }
+                }
+                break;
+            case RARE_DROP:
+                // Capture rare drops
+                if (config.captureDrops())
+                {
+                    String itemName = chatMatch.getText("item");
+                    if (itemName != null && isRareDrop(itemName))
+                    {
+                        log.info("Rare drop detected: {}", itemName);
+                        // Only "Valuable drop" messages carry a value, the item id is not known from chat
+                        long value = chatMatch.getNumber("value");
+                        sendEvent(EventKind.RARE_DROP, itemName, 0, value > 0 ? EventMetadata.ofDrop(0, 1, value) : null);
+                    }
+                }
+                break;
+            case DEATH:
+                // Capture deaths
+                log.info("Death detected");
+                sendEvent(EventKind.DEATH, "Player Death", 0, null);
+                break;
         }
     }
 
@@ -426,10 +754,39 @@ public class IronTrials extends Plugin
         if ("irontrials".equals(commandExecuted.getCommand()))
         {
             log.info("Iron Trials command detected via CommandExecuted!");
+            runCommand(commandExecuted.getArguments());
+        }
+    }
+
+    // "::irontrials" tests the connection, "::irontrials net" prints request timings
+    private void runCommand(String[] arguments)
+    {
+        if (arguments.length > 0 && "net".equalsIgnoreCase(arguments[0]))
+        {
+            showNetworkStats();
+        }
+        else
+        {
             testPlugin();
         }
     }
 
+    private void showNetworkStats()
+    {
+        List<String> lines = httpClient.getNetworkStats().summary();
+        if (lines.isEmpty())
+        {
+            client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "Iron Trials: No requests made yet", null);
+            return;
+        }
+
+        client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "Iron Trials request timings (p50/p90/p99):", null);
+        for (String line : lines)
+        {
+            client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", line, null);
+        }
+    }
+
     private void testPlugin()
     {
         client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "Iron Trials test: Plugin is working!", null);
@@ -447,7 +804,7 @@ public class IronTrials extends Plugin
         client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "Iron Trials: Testing connection to " + serverUrl, null);
         
         // Test API call
-        httpClient.getGroupData(serverUrl, groupId).thenAccept(groupData -> {
+        httpClient.getRoster(serverUrl, groupId).thenAccept(groupData -> {
             if (groupData != null)
             {
                 client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "Iron Trials: Successfully loaded group data for " + groupData.getName(), null);
@@ -459,108 +816,306 @@ public class IronTrials extends Plugin
         });
     }
 
-    @Provides
-    IronTrialsConfig provideConfig(ConfigManager configManager)
+    @Schedule(
+        period = 5,
+        unit = ChronoUnit.MINUTES,
+        asynchronous = true
+    )
+    public void uploadXpSummary()
     {
-        return configManager.getConfig(IronTrialsConfig.class);
-    }
-    
-    // Getters for other components
-    public Client getClient() { return client; }
-    public IronTrialsConfig getConfig() { return config; }
-    public HttpClient getHttpClient() { return httpClient; }
+        String serverUrl = config.serverUrl();
+        String groupId = config.groupId();
+        if (!config.uploadXpRates() || serverUrl.isEmpty() || groupId.isEmpty())
+        {
+            return;
+        }
 
-    private Integer getPreviousLevel(Skill skill)
-    {
-        return previousLevels.getOrDefault(skill, 0);
-    }
+        // One compact upload per interval instead of an event per XP drop. Summaries whose
+        // upload failed go out again with it, each carries its own player and interval so a
+        // logout or account switch in between does not matter.
+        XpSummary summary = xpTracker.takeSummary(config.playerName(), System.currentTimeMillis());
+        List<XpSummary> summaries;
+        synchronized (unsentSummaries)
+        {
+            if (summary != null)
+            {
+                unsentSummaries.add(summary);
+            }
+            summaries = new ArrayList<>(unsentSummaries);
+            unsentSummaries.clear();
+        }
 
-    private boolean isMilestoneLevel(int level)
-    {
-        if (milestoneConfig == null || milestoneConfig.getLevelMilestones() == null)
+        for (XpSummary unsent : summaries)
         {
-            return false;
+            httpClient.sendXpSummary(serverUrl, groupId, unsent).whenComplete((success, ex) -> {
+                if (ex == null && Boolean.TRUE.equals(success))
+                {
+                    return;
+                }
+                log.warn("Failed to upload XP summary for {} skills, retrying with the next one", unsent.getSkills().size());
+                synchronized (unsentSummaries)
+                {
+                    unsentSummaries.add(unsent);
+                    if (unsentSummaries.size() > MAX_UNSENT_SUMMARIES)
+                    {
+                        XpSummary dropped = Collections.min(unsentSummaries, Comparator.comparingLong(XpSummary::getFrom));
+                        unsentSummaries.remove(dropped);
+                        log.warn("Dropping XP summary of {} from {}, too many failed uploads", dropped.getPlayerName(), dropped.getFrom());
+                    }
+                }
+            });
         }
-        return milestoneConfig.getLevelMilestones().contains(level);
     }
 
-    private boolean isSignificantAchievement(String achievement)
+    @Schedule(
+        period = SYNC_PERIOD_SECONDS,
+        unit = ChronoUnit.SECONDS,
+        asynchronous = true
+    )
+    public void syncGroup()
     {
-        if (milestoneConfig == null)
+        String serverUrl = config.serverUrl();
+        String groupId = config.groupId();
+        IronTrialsPanel panel = mainPanel;
+        if (panel == null || serverUrl.isEmpty() || groupId.isEmpty())
         {
-            return false;
+            return;
         }
-        
-        String lowerAchievement = achievement.toLowerCase();
-        
-        // Check quest milestones
-        if (milestoneConfig.getQuestMilestones() != null)
+
+        // The full roster snapshot is heavy, only fetch it every refreshInterval
+        long now = System.currentTimeMillis();
+        if (now - lastRosterRefresh >= config.refreshInterval() * 1000L)
+        {
+            lastRosterRefresh = now;
+            panel.refreshData();
+        }
+
+        String cursor = syncCursors.get(serverUrl, groupId);
+        PushChannel pushChannel = this.pushChannel;
+        if (config.pushUpdates() && pushChannel != null)
+        {
+            // Pushed updates replace the poll, this is a no-op while the channel is running
+            pushChannel.start(serverUrl, groupId, cursor);
+            return;
+        }
+
+        // Skip this round if the previous poll has not finished yet
+        if (!syncInFlight.compareAndSet(false, true))
         {
-            for (String quest : milestoneConfig.getQuestMilestones())
+            return;
+        }
+
+        httpClient.getEventsSince(serverUrl, groupId, cursor).whenComplete((sync, ex) -> {
+            syncInFlight.set(false);
+            if (sync == null)
             {
-                if (lowerAchievement.contains(quest.toLowerCase()))
-                {
-                    return true;
-                }
+                return;
+            }
+
+            if (sync.getEvents() != null && !sync.getEvents().isEmpty())
+            {
+                log.debug("Synced {} new group events", sync.getEvents().size());
+                mergeGroupEvents(sync.getEvents());
+            }
+
+            syncCursors.put(serverUrl, groupId, sync.getCursor());
+        });
+    }
+
+    // Shows and records group events from sync or push. Events whose id was seen before, our
+    // own uploads coming back or events delivered twice, are dropped here.
+    private void mergeGroupEvents(List<GameEvent> events)
+    {
+        List<GameEvent> fresh = new ArrayList<>();
+        for (GameEvent event : events)
+        {
+            if (event.getId() == null || seenIds.add(event.getId()))
+            {
+                fresh.add(event);
             }
         }
-        
-        // Check achievement milestones
-        if (milestoneConfig.getAchievementMilestones() != null)
+
+        IronTrialsPanel panel = mainPanel;
+        if (panel != null && !fresh.isEmpty())
         {
-            for (String achievementMilestone : milestoneConfig.getAchievementMilestones())
+            panel.addGroupEvents(fresh);
+        }
+
+        // Our own events are recorded when they are sent
+        EventHistory history = this.history;
+        String playerName = config.playerName();
+        for (GameEvent event : fresh)
+        {
+            if (!playerName.equals(event.getPlayerName()))
             {
-                if (lowerAchievement.contains(achievementMilestone.toLowerCase()))
+                eventIndex.add(event);
+                if (history != null)
                 {
-                    return true;
+                    history.append(event);
                 }
             }
         }
-        
-        return false;
     }
 
-    private boolean isRareDrop(String itemName)
+    // Up to limit events older than before (seconds, exclusive) from the local history, newest
+    // first, only those of playerName unless it is null. Read on the executor, never the EDT.
+    public CompletableFuture<List<GameEvent>> getHistory(String playerName, long before, int limit)
     {
-        if (milestoneConfig == null || milestoneConfig.getRareDrops() == null)
+        EventHistory history = this.history;
+        if (history == null)
         {
-            return false;
+            return CompletableFuture.completedFuture(new ArrayList<>());
         }
-        
-        String lowerName = itemName.toLowerCase();
-        
-        for (String rareDrop : milestoneConfig.getRareDrops())
+        return CompletableFuture.supplyAsync(() -> history.page(playerName, before, limit), executor);
+    }
+
+    // Newest first, see EventIndex.query. Cheap enough to call on the EDT.
+    public List<GameEvent> queryEvents(Set<EventKind> kinds, String playerName, long from, long to, int limit)
+    {
+        return eventIndex.query(kinds, playerName, from, to, limit);
+    }
+
+    // Persisted so a restart continues where this session stopped, syncCursors only changes
+    // in memory with each batch
+    @Schedule(
+        period = 1,
+        unit = ChronoUnit.MINUTES,
+        asynchronous = true
+    )
+    public void saveSyncCursors()
+    {
+        syncCursors.flush();
+    }
+
+    private class PushListener implements PushChannel.Listener
+    {
+        @Override
+        public void onEvents(List<GameEvent> events, String cursor)
         {
-            if (lowerName.contains(rareDrop.toLowerCase()))
+            mergeGroupEvents(events);
+            syncCursors.put(config.serverUrl(), config.groupId(), cursor);
+        }
+
+        @Override
+        public void onPoints(PointsUpdate update)
+        {
+            IronTrialsPanel panel = mainPanel;
+            if (panel != null)
             {
-                return true;
+                panel.updatePoints(update);
             }
         }
-        
-        return false;
+
+        @Override
+        public void onTileCompleted(TileCompletion completion)
+        {
+            IronTrialsPanel panel = mainPanel;
+            if (panel != null)
+            {
+                panel.completeTile(completion);
+            }
+        }
+
+        @Override
+        public void onLiveChanged(boolean live)
+        {
+            log.debug("Push updates {}", live ? "connected" : "disconnected");
+        }
     }
 
-    private boolean isSignificantBossKill(String bossName)
+    @Schedule(
+        period = 1,
+        unit = ChronoUnit.MINUTES,
+        asynchronous = true
+    )
+    public void retryOutbox()
     {
-        if (milestoneConfig == null || milestoneConfig.getBossKills() == null)
+        replayOutbox();
+    }
+
+    @Schedule(
+        period = 1,
+        unit = ChronoUnit.SECONDS,
+        asynchronous = true
+    )
+    public void syncOutbox()
+    {
+        EventOutbox outbox = this.outbox;
+        if (outbox != null && config.outboxDurability() == OutboxDurability.PERIODIC)
         {
-            return false;
+            outbox.sync();
         }
-        
-        String lowerName = bossName.toLowerCase();
-        
-        for (String boss : milestoneConfig.getBossKills())
+    }
+
+    @Subscribe
+    public void onConfigChanged(ConfigChanged configChanged)
+    {
+        if (!"irontrials".equals(configChanged.getGroup()))
         {
-            if (lowerName.contains(boss.toLowerCase()))
-            {
-                return true;
-            }
+            return;
         }
-        
-        return false;
+
+        if ("outboxDurability".equals(configChanged.getKey()) && outbox != null)
+        {
+            outbox.setDurability(config.outboxDurability());
+        }
+
+        if ("wireFormat".equals(configChanged.getKey()) && httpClient != null)
+        {
+            httpClient.setWireFormat(config.wireFormat());
+        }
+
+        if ("feedMaxItems".equals(configChanged.getKey()) && recentEvents != null)
+        {
+            resizeRecentEvents(feedCapacity());
+        }
+
+        if (MILESTONE_CONFIG_KEYS.contains(configChanged.getKey()) && httpClient != null)
+        {
+            loadMilestoneConfig();
+        }
+
+        if ("serverUrl".equals(configChanged.getKey()) && httpClient != null)
+        {
+            httpClient.warmUp(config.serverUrl());
+        }
+
+        // Reconnected to the new target on the next sync tick
+        String key = configChanged.getKey();
+        if (("serverUrl".equals(key) || "groupId".equals(key) || "pushUpdates".equals(key)) && pushChannel != null)
+        {
+            pushChannel.stop();
+        }
+    }
+
+    @Provides
+    IronTrialsConfig provideConfig(ConfigManager configManager)
+    {
+        return configManager.getConfig(IronTrialsConfig.class);
+    }
+    
+    // Getters for other components
+    public Client getClient() { return client; }
+    public IronTrialsConfig getConfig() { return config; }
+    public HttpClient getHttpClient() { return httpClient; }
+    public XpTracker getXpTracker() { return xpTracker; }
+
+    private boolean isSignificantAchievement(String achievement)
+    {
+        return milestones != null && milestones.isSignificantAchievement(achievement);
+    }
+
+    private boolean isRareDrop(String itemName)
+    {
+        return milestones != null && milestones.isRareDrop(itemName);
+    }
+
+    private boolean isSignificantBossKill(String bossName)
+    {
+        return milestones != null && milestones.isSignificantBossKill(bossName);
     }
 
-    private void sendEvent(EventKind kind, String name, int value, int xp)
+    private void sendEvent(EventKind kind, String name, int value, EventMetadata metadata)
     {
         String serverUrl = config.serverUrl();
         String groupId = config.groupId();
@@ -572,38 +1127,112 @@ public class IronTrials extends Plugin
         }
 
         GameEvent event = new GameEvent();
+        event.setId(EventIds.next());
         event.setKind(kind);
         event.setDescription(name);
         event.setPoints(value);
         event.setTimestamp(System.currentTimeMillis() / 1000); // Unix timestamp
-        event.setMetadata("xp:" + xp); // Store XP in metadata
+        event.setMetadata(metadata);
+        if (!config.playerName().isEmpty())
+        {
+            event.setPlayerName(config.playerName());
+        }
+
+        // Journal the event before anything else so a failed send can be replayed
+        long sequence = outbox != null ? outbox.append(event) : -1;
 
         // Store event locally for real-time display
+        seenIds.add(event.getId());
         addEventToFeed(event);
+        eventIndex.add(event);
+        EventHistory history = this.history;
+        if (history != null)
+        {
+            history.append(event);
+        }
 
-        httpClient.sendEvent(serverUrl, groupId, event).thenAccept(success -> {
-            if (success)
+        deliverEvent(serverUrl, groupId, sequence, event);
+    }
+
+    private void deliverEvent(String serverUrl, String groupId, long sequence, GameEvent event)
+    {
+        EventOutbox outbox = this.outbox;
+        boolean durable = outbox != null && sequence >= 0;
+        httpClient.sendEvent(serverUrl, groupId, event, durable).thenAccept(result -> {
+            if (result == SendResult.ACCEPTED)
             {
-                log.info("Event sent successfully: {} - {}", kind, name);
+                log.info("Event sent successfully: {} - {}", event.getKind(), event.getDescription());
+                if (durable)
+                {
+                    outbox.ack(sequence);
+                }
+            }
+            else if (result == SendResult.REJECTED)
+            {
+                // Resending cannot change the answer, so it leaves the outbox like a sent one
+                log.warn("Server rejected event, dropping it: {} - {}", event.getKind(), event.getDescription());
+                if (durable)
+                {
+                    outbox.ack(sequence);
+                }
+            }
+            else if (durable)
+            {
+                // Failed or deferred, the HTTP client and rate limiter already logged why
+                log.debug("Event not sent yet, kept in the outbox: {} - {}", event.getKind(), event.getDescription());
+                outbox.release(sequence);
             }
             else
             {
-                log.warn("Failed to send event: {} - {}", kind, name);
+                log.warn("Failed to send event: {} - {}", event.getKind(), event.getDescription());
             }
         });
     }
 
-    private void addEventToFeed(GameEvent event)
+    private void onCircuitChanged(String endpoint, CircuitBreaker.State state)
     {
-        // Add event to the beginning of the list (most recent first)
-        recentEvents.add(0, event);
-        
-        // Keep only the last MAX_EVENTS
-        if (recentEvents.size() > MAX_EVENTS)
+        IronTrialsPanel panel = mainPanel;
+        if (panel != null)
         {
-            recentEvents = recentEvents.subList(0, MAX_EVENTS);
+            panel.updateServerStatus(httpClient.getServerState(), httpClient.getRetryDelay());
         }
 
+        // The server is accepting events again, push out everything that failed meanwhile
+        if (state == CircuitBreaker.State.CLOSED && HttpClient.EVENTS_ENDPOINT.equals(endpoint))
+        {
+            replayOutbox();
+        }
+    }
+
+    private void replayOutbox()
+    {
+        String serverUrl = config.serverUrl();
+        String groupId = config.groupId();
+        EventOutbox outbox = this.outbox;
+        if (outbox == null || serverUrl.isEmpty() || groupId.isEmpty())
+        {
+            return;
+        }
+
+        Map<Long, GameEvent> unsent = outbox.takeUnsent();
+        if (!unsent.isEmpty())
+        {
+            log.info("Replaying {} unsent events from the outbox", unsent.size());
+            unsent.forEach((sequence, event) -> {
+                if (event.getId() != null)
+                {
+                    seenIds.add(event.getId());
+                }
+                deliverEvent(serverUrl, groupId, sequence, event);
+            });
+        }
+    }
+
+    private void addEventToFeed(GameEvent event)
+    {
+        // Overwrites the oldest event once the buffer is full
+        recentEvents.add(event);
+
         // Notify the UI to update
         SwingUtilities.invokeLater(() -> {
             if (mainPanel != null)
@@ -613,109 +1242,43 @@ public class IronTrials extends Plugin
         });
     }
 
+    // Newest first
     public List<GameEvent> getRecentEvents()
     {
-        return new ArrayList<>(recentEvents);
+        return recentEvents.snapshot();
     }
 
-    public GroupData getGroupData()
+    private int feedCapacity()
     {
-        return groupData;
+        return Math.max(1, config.feedMaxItems());
     }
 
-    public void setGroupData(GroupData groupData)
+    // Copies the buffered events into a buffer of the new size. An event added while copying
+    // may be left out of the feed, it is still uploaded.
+    private void resizeRecentEvents(int capacity)
     {
-        this.groupData = groupData;
-    }
-
-    private String extractQuestName(String message)
-    {
-        // Look for quest completion patterns
-        if (message.contains("Congratulations! You have completed"))
+        RingBuffer<GameEvent> current = recentEvents;
+        if (current.getCapacity() == capacity)
         {
-            int start = message.indexOf("Congratulations! You have completed") + 33;
-            int end = message.indexOf(".", start);
-            if (end != -1)
-            {
-                return message.substring(start, end).trim();
-            }
-        }
-        else if (message.contains("You have completed") && message.contains("quest"))
-        {
-            int start = message.indexOf("You have completed") + 18;
-            int end = message.indexOf("quest", start);
-            if (end != -1)
-            {
-                return message.substring(start, end).trim();
-            }
+            return;
         }
-        return null;
-    }
 
-    private String extractBossName(String message)
-    {
-        // Look for boss kill count patterns
-        if (message.contains("Your kill count is:"))
+        RingBuffer<GameEvent> resized = new RingBuffer<>(capacity);
+        List<GameEvent> events = current.snapshot();
+        for (int i = Math.min(events.size(), capacity) - 1; i >= 0; i--)
         {
-            // This is a simplified extraction - in practice, you'd need more context
-            // to determine which boss this refers to
-            return "Unknown Boss"; // Placeholder
+            resized.add(events.get(i));
         }
-        return null;
+        recentEvents = resized;
     }
 
-    private int extractKillCount(String message)
+    public GroupData getGroupData()
     {
-        // Extract the number from "Your kill count is: X"
-        if (message.contains("Your kill count is:"))
-        {
-            try
-            {
-                String[] parts = message.split(":");
-                if (parts.length > 1)
-                {
-                    String numberPart = parts[1].replaceAll("[^0-9]", "");
-                    return Integer.parseInt(numberPart);
-                }
-            }
-            catch (NumberFormatException e)
-            {
-                log.warn("Could not parse kill count from message: {}", message);
-            }
-        }
-        return 0;
+        return groupData;
     }
 
-    private String extractItemName(String message)
+    public void setGroupData(GroupData groupData)
     {
-        // Look for drop patterns
-        if (message.contains("You have received a"))
-        {
-            int start = message.indexOf("You have received a") + 19;
-            int end = message.indexOf(".", start);
-            if (end != -1)
-            {
-                return message.substring(start, end).trim();
-            }
-        }
-        else if (message.contains("You received"))
-        {
-            int start = message.indexOf("You received") + 12;
-            int end = message.indexOf(".", start);
-            if (end != -1)
-            {
-                return message.substring(start, end).trim();
-            }
-        }
-        else if (message.contains("You got"))
-        {
-            int start = message.indexOf("You got") + 7;
-            int end = message.indexOf(".", start);
-            if (end != -1)
-            {
-                return message.substring(start, end).trim();
-            }
-        }
-        return null;
+        this.groupData = groupData;
     }
 }
\ No newline at end of file
@@ -49,6 +49,42 @@ public interface IronTrialsConfig extends Config
         return "";
     }
 
+    @ConfigItem(
+        keyName = "outboxDurability",
+        name = "Outbox Durability",
+        description = "How hard unsent events are protected against crashes before the server accepts them",
+        section = serverSection,
+        position = 4
+    )
+    default OutboxDurability outboxDurability()
+    {
+        return OutboxDurability.OS_BUFFERED;
+    }
+
+    @ConfigItem(
+        keyName = "wireFormat",
+        name = "Wire Format",
+        description = "Encoding for events and group data, binary formats are smaller and faster to parse; JSON is used if the server does not support them",
+        section = serverSection,
+        position = 5
+    )
+    default WireFormat wireFormat()
+    {
+        return WireFormat.JSON;
+    }
+
+    @ConfigItem(
+        keyName = "http2",
+        name = "HTTP/2",
+        description = "Allow HTTP/2 with HTTPS servers, so all requests share one connection. Takes effect when the plugin restarts",
+        section = serverSection,
+        position = 6
+    )
+    default boolean http2()
+    {
+        return true;
+    }
+
     @ConfigSection(
         name = "Group Settings",
         description = "Group and player settings",
@@ -171,6 +207,18 @@ public interface IronTrialsConfig extends Config
         return "test-group";
     }
 
+    @ConfigItem(
+        keyName = "uploadXpRates",
+        name = "Upload XP Rates",
+        description = "Periodically upload a summary of XP gained and XP/hr per skill",
+        section = eventSection,
+        position = 8
+    )
+    default boolean uploadXpRates()
+    {
+        return true;
+    }
+
     @ConfigItem(
         keyName = "captureQuests",
         name = "Capture Quests",
@@ -229,13 +277,25 @@ public interface IronTrialsConfig extends Config
     @ConfigItem(
         keyName = "refreshInterval",
         name = "Refresh Interval",
-        description = "How often to refresh data (in seconds)",
+        description = "How often to refresh the roster and bingo boards (in seconds), the feed is polled separately",
         section = displaySection,
         position = 2
     )
     default int refreshInterval()
     {
-        return 60;
+        return 300;
+    }
+
+    @ConfigItem(
+        keyName = "pushUpdates",
+        name = "Live Updates",
+        description = "Keep a connection open so group events, points and bingo tiles show up immediately",
+        section = displaySection,
+        position = 4
+    )
+    default boolean pushUpdates()
+    {
+        return true;
     }
 
     @ConfigItem(
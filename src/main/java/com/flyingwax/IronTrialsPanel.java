@@ -14,7 +14,7 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 public class IronTrialsPanel extends PluginPanel
@@ -25,6 +25,8 @@ public class IronTrialsPanel extends PluginPanel
     private final RosterPanel rosterPanel;
     private final FeedPanel feedPanel;
     private final BingoPanel bingoPanel;
+    private final JLabel serverStatus = new JLabel();
+    private final JTextArea networkStats = new JTextArea();
 
     @Inject
     public IronTrialsPanel(IronTrials plugin)
@@ -72,8 +74,45 @@ public class IronTrialsPanel extends PluginPanel
         JPanel buttonPanel = new JPanel();
         buttonPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
         buttonPanel.add(refreshButton);
-        
-        add(buttonPanel, BorderLayout.SOUTH);
+
+        // Debug view with request timing percentiles, hidden until asked for
+        JButton networkButton = new JButton("Network");
+        networkButton.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        networkButton.setForeground(Color.WHITE);
+        networkButton.addActionListener(e -> toggleNetworkStats());
+        buttonPanel.add(networkButton);
+
+        serverStatus.setFont(FontManager.getRunescapeSmallFont());
+        buttonPanel.add(serverStatus);
+        updateServerStatus(CircuitBreaker.State.CLOSED, 0);
+
+        networkStats.setEditable(false);
+        networkStats.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 10));
+        networkStats.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        networkStats.setForeground(ColorScheme.LIGHT_GRAY_COLOR);
+        networkStats.setVisible(false);
+
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
+        southPanel.add(buttonPanel, BorderLayout.NORTH);
+        southPanel.add(networkStats, BorderLayout.CENTER);
+        add(southPanel, BorderLayout.SOUTH);
+    }
+
+    private void toggleNetworkStats()
+    {
+        if (networkStats.isVisible())
+        {
+            networkStats.setVisible(false);
+        }
+        else
+        {
+            // Percentiles are p50/p90/p99, refreshed each time the view is opened
+            List<String> lines = plugin.getHttpClient().getNetworkStats().report();
+            networkStats.setText(lines.isEmpty() ? "No requests yet" : "p50/p90/p99\n" + String.join("\n", lines));
+            networkStats.setVisible(true);
+        }
+        revalidate();
     }
 
     // Override to remove fixed width constraint
@@ -123,43 +162,82 @@ public class IronTrialsPanel extends PluginPanel
         });
     }
 
-    private void refreshData()
+    public void updateServerStatus(CircuitBreaker.State state, long retryDelay)
     {
-        CompletableFuture.runAsync(() -> {
-            try
+        SwingUtilities.invokeLater(() -> {
+            switch (state)
             {
-                log.info("Refreshing data...");
-                
-                // Get group data
-                GroupData groupData = plugin.getHttpClient().getGroupData(plugin.getConfig().serverUrl(), plugin.getConfig().groupId()).get();
-                if (groupData != null)
-                {
-                                    SwingUtilities.invokeLater(() -> {
-                    rosterPanel.updateData(groupData);
-                    feedPanel.updateData(groupData);
-                    
-                    // Get bingo data
-                    try {
-                        List<BingoData> bingoData = plugin.getHttpClient().getBingoData(plugin.getConfig().serverUrl(), plugin.getConfig().groupId()).get();
-                        if (bingoData != null) {
-                            bingoPanel.updateData(bingoData);
-                        }
-                    } catch (Exception e) {
-                        log.error("Error loading bingo data", e);
-                    }
-                    
-                    log.info("Data refreshed successfully");
-                });
-                }
-                else
+                case OPEN:
+                    serverStatus.setText("Server offline, retry in " + Math.max(1, retryDelay / 1000) + "s");
+                    serverStatus.setForeground(ColorScheme.PROGRESS_ERROR_COLOR);
+                    break;
+                case HALF_OPEN:
+                    serverStatus.setText("Reconnecting...");
+                    serverStatus.setForeground(ColorScheme.PROGRESS_INPROGRESS_COLOR);
+                    break;
+                default:
+                    serverStatus.setText("Server online");
+                    serverStatus.setForeground(ColorScheme.PROGRESS_COMPLETE_COLOR);
+                    break;
+            }
+        });
+    }
+
+    public void addGroupEvents(List<GameEvent> events)
+    {
+        SwingUtilities.invokeLater(() -> feedPanel.addGroupEvents(events));
+    }
+
+    public void updatePoints(PointsUpdate update)
+    {
+        SwingUtilities.invokeLater(() -> rosterPanel.updatePoints(update.getPlayerName(), update.getPoints()));
+    }
+
+    public void completeTile(TileCompletion completion)
+    {
+        SwingUtilities.invokeLater(() -> bingoPanel.completeTile(completion));
+    }
+
+    public void refreshData()
+    {
+        log.info("Refreshing data...");
+        HttpClient httpClient = plugin.getHttpClient();
+        String serverUrl = plugin.getConfig().serverUrl();
+        String groupId = plugin.getConfig().groupId();
+
+        // Both requests run on the HTTP client's own threads and hand over each board as soon
+        // as it is decoded; everything is applied on the EDT. Old boards are only cleared once
+        // new ones arrive, so an unchanged (304) response keeps them. Feed events come from the
+        // incremental sync, so the roster's recent events are skipped without being kept.
+        httpClient.getRoster(serverUrl, groupId).thenAccept(groupData -> {
+            if (groupData == null)
+            {
+                log.warn("Failed to get group data");
+                return;
+            }
+
+            SwingUtilities.invokeLater(() -> {
+                rosterPanel.updateData(groupData);
+                feedPanel.updateData(groupData);
+                log.info("Data refreshed successfully");
+            });
+        });
+
+        AtomicBoolean boardsCleared = new AtomicBoolean();
+        httpClient.streamBingoData(serverUrl, groupId, board -> {
+            boolean first = boardsCleared.compareAndSet(false, true);
+            SwingUtilities.invokeLater(() -> {
+                if (first)
                 {
-                    log.warn("Failed to get group data");
+                    bingoPanel.clearBoards();
                 }
-            }
-            catch (Exception e)
+                bingoPanel.addBoard(board);
+            });
+        }).thenAccept(count -> {
+            if (count != null)
             {
-                log.error("Error refreshing data", e);
+                SwingUtilities.invokeLater(() -> bingoPanel.finishBoards(count));
             }
         });
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
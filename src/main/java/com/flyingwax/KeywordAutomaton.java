@@ -0,0 +1,200 @@
+package com.flyingwax;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Case-insensitive Aho-Corasick matcher. Every keyword carries a category bit and
+// match() returns the OR of the bits of all keywords found in the text. The goto and
+// failure functions are folded into one transition table at build time, so matching is
+// a single pass over the text with no allocation.
+public class KeywordAutomaton
+{
+    private static final int ASCII = 128;
+
+    // ASCII chars map through a table, anything else through a sorted lookup.
+    // Class 0 is "char not used by any keyword".
+    private final int[] asciiClass = new int[ASCII];
+    private final char[] extraChars;
+    private final int[] extraClass;
+    private final int alphabetSize;
+
+    private final int[] transitions;
+    private final int[] outputs;
+
+    private KeywordAutomaton(List<String> keywords, List<Integer> categories)
+    {
+        // Build the alphabet from the lowercased keywords
+        List<Character> extra = new ArrayList<>();
+        int nextClass = 1;
+        for (String keyword : keywords)
+        {
+            for (int i = 0; i < keyword.length(); i++)
+            {
+                char c = keyword.charAt(i);
+                if (c < ASCII)
+                {
+                    if (asciiClass[c] == 0)
+                    {
+                        asciiClass[c] = nextClass++;
+                    }
+                }
+                else if (!extra.contains(c))
+                {
+                    extra.add(c);
+                }
+            }
+        }
+
+        extraChars = new char[extra.size()];
+        for (int i = 0; i < extraChars.length; i++)
+        {
+            extraChars[i] = extra.get(i);
+        }
+        Arrays.sort(extraChars);
+        extraClass = new int[extraChars.length];
+        for (int i = 0; i < extraClass.length; i++)
+        {
+            extraClass[i] = nextClass++;
+        }
+        alphabetSize = nextClass;
+
+        // Build the keyword trie; -1 marks a missing edge until the failure pass fills it
+        int maxStates = 1;
+        for (String keyword : keywords)
+        {
+            maxStates += keyword.length();
+        }
+        int[] trie = new int[maxStates * alphabetSize];
+        Arrays.fill(trie, -1);
+        int[] out = new int[maxStates];
+        int states = 1;
+
+        for (int k = 0; k < keywords.size(); k++)
+        {
+            String keyword = keywords.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++)
+            {
+                int slot = state * alphabetSize + classOf(keyword.charAt(i));
+                if (trie[slot] == -1)
+                {
+                    trie[slot] = states++;
+                }
+                state = trie[slot];
+            }
+            out[state] |= categories.get(k);
+        }
+
+        // Breadth-first pass: resolve failure links and turn the trie into a full DFA
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < alphabetSize; c++)
+        {
+            int next = trie[c];
+            if (next == -1)
+            {
+                trie[c] = 0;
+            }
+            else
+            {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+
+        while (!queue.isEmpty())
+        {
+            int state = queue.poll();
+            out[state] |= out[fail[state]];
+            for (int c = 0; c < alphabetSize; c++)
+            {
+                int slot = state * alphabetSize + c;
+                int next = trie[slot];
+                if (next == -1)
+                {
+                    trie[slot] = trie[fail[state] * alphabetSize + c];
+                }
+                else
+                {
+                    fail[next] = trie[fail[state] * alphabetSize + c];
+                    queue.add(next);
+                }
+            }
+        }
+
+        transitions = Arrays.copyOf(trie, states * alphabetSize);
+        outputs = Arrays.copyOf(out, states);
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public int match(CharSequence text)
+    {
+        return text == null ? 0 : match(text, 0, text.length());
+    }
+
+    public int match(CharSequence text, int start, int end)
+    {
+        int state = 0;
+        int found = outputs[0];
+        for (int i = start; i < end; i++)
+        {
+            state = transitions[state * alphabetSize + classOf(Character.toLowerCase(text.charAt(i)))];
+            found |= outputs[state];
+        }
+        return found;
+    }
+
+    public int getStateCount()
+    {
+        return outputs.length;
+    }
+
+    private int classOf(char c)
+    {
+        if (c < ASCII)
+        {
+            return asciiClass[c];
+        }
+        int index = Arrays.binarySearch(extraChars, c);
+        return index < 0 ? 0 : extraClass[index];
+    }
+
+    public static class Builder
+    {
+        private final List<String> keywords = new ArrayList<>();
+        private final List<Integer> categories = new ArrayList<>();
+
+        public Builder add(String keyword, int category)
+        {
+            if (keyword != null)
+            {
+                keywords.add(keyword.toLowerCase());
+                categories.add(category);
+            }
+            return this;
+        }
+
+        public Builder addAll(List<String> keywords, int category)
+        {
+            if (keywords != null)
+            {
+                for (String keyword : keywords)
+                {
+                    add(keyword, category);
+                }
+            }
+            return this;
+        }
+
+        public KeywordAutomaton build()
+        {
+            return new KeywordAutomaton(keywords, categories);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.flyingwax;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free histogram of durations in microseconds. Buckets are log-linear: each power of
+// two is split into 8 sub-buckets, so any recorded value is reported within 12.5% of its
+// true value while the whole histogram stays a few kilobytes. Recording is a single atomic
+// increment, cheap enough to do for every network event.
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values up to 2^40 microseconds (about 12 days), larger ones land in the last bucket
+    private static final int BUCKETS = (40 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long micros)
+    {
+        counts.incrementAndGet(indexOf(Math.max(0, micros)));
+    }
+
+    public long getCount()
+    {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100), 0 if nothing was recorded
+    public long getPercentile(double percentile)
+    {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += snapshot[i];
+            if (seen >= rank)
+            {
+                return lowerBound(i + 1) - 1;
+            }
+        }
+        return lowerBound(BUCKETS) - 1;
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts.set(i, 0);
+        }
+    }
+
+    // Values below SUB_BUCKETS get a bucket each, above that the top SUB_BUCKET_BITS + 1 bits pick it
+    private static int indexOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket);
+    }
+
+    private static long lowerBound(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+}
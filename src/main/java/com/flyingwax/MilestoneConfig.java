@@ -3,6 +3,7 @@ package com.flyingwax;
 import lombok.Data;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -51,6 +52,44 @@ public class MilestoneConfig
         ));
         return config;
     }
+
+    // Problems that make the config unusable, empty if it is fine. Missing lists are allowed.
+    public List<String> validate()
+    {
+        List<String> problems = new ArrayList<>();
+        if (levelMilestones != null)
+        {
+            for (Integer level : levelMilestones)
+            {
+                if (level == null || level < 1 || level > 99)
+                {
+                    problems.add("levelMilestones: " + level + " is not a level between 1 and 99");
+                }
+            }
+        }
+        checkKeywords("questMilestones", questMilestones, problems);
+        checkKeywords("achievementMilestones", achievementMilestones, problems);
+        checkKeywords("rareDrops", rareDrops, problems);
+        checkKeywords("bossKills", bossKills, problems);
+        if (customMilestones != null)
+        {
+            customMilestones.forEach((name, points) -> {
+                if (points == null || points < 0)
+                {
+                    problems.add("customMilestones: " + name + " needs a non-negative number of points");
+                }
+            });
+        }
+        return problems;
+    }
+
+    private static void checkKeywords(String name, List<String> keywords, List<String> problems)
+    {
+        if (keywords != null && keywords.stream().anyMatch(keyword -> keyword == null || keyword.trim().isEmpty()))
+        {
+            problems.add(name + ": contains an empty entry");
+        }
+    }
 }
 
 @Data
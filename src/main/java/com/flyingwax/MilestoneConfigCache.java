@@ -0,0 +1,62 @@
+package com.flyingwax;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// The last milestone config that loaded successfully, kept on disk so the plugin can start
+// with it right away while the real source is fetched in the background. It is written to
+// a temporary file and moved into place, so a crash mid-write never leaves a broken copy.
+@Slf4j
+public class MilestoneConfigCache
+{
+    private final File file;
+    private final ObjectMapper objectMapper;
+
+    public MilestoneConfigCache(File file, ObjectMapper objectMapper)
+    {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    // The cached config, or null if there is none yet or it cannot be read
+    public MilestoneConfigResponse load()
+    {
+        if (!file.exists())
+        {
+            return null;
+        }
+
+        try
+        {
+            MilestoneConfigResponse cached = objectMapper.readValue(file, MilestoneConfigResponse.class);
+            return cached.getConfig() != null ? cached : null;
+        }
+        catch (IOException e)
+        {
+            log.warn("Ignoring unreadable milestone config cache {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    public void save(MilestoneConfigResponse response)
+    {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(file.getName() + ".tmp");
+        try
+        {
+            Files.createDirectories(target.getParent());
+            objectMapper.writeValue(temp.toFile(), response);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to cache milestone config: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.flyingwax;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Per-endpoint timing of every OkHttp call, split into the phases below. The endpoint is
+// taken from the request's String tag, set by HttpClient. Queue is the time from the start
+// of the call until its request is written, minus DNS and connecting, i.e. waiting for a
+// dispatcher slot or a pooled connection; TTFB is from writing the request to the first
+// response header, i.e. the server plus one round trip.
+public class NetworkStats implements EventListener.Factory
+{
+    public enum Phase
+    {
+        QUEUE,
+        DNS,
+        CONNECT,
+        TLS,
+        TTFB,
+        BODY,
+        TOTAL
+    }
+
+    private final Map<String, LatencyHistogram[]> endpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public EventListener create(Call call)
+    {
+        String endpoint = call.request().tag(String.class);
+        return new CallTimer(histograms(endpoint != null ? endpoint : "other"));
+    }
+
+    public void reset()
+    {
+        endpoints.clear();
+    }
+
+    // One line per endpoint and phase with its call count and p50/p90/p99 in milliseconds
+    public List<String> report()
+    {
+        List<String> names = new ArrayList<>(endpoints.keySet());
+        Collections.sort(names);
+
+        List<String> lines = new ArrayList<>();
+        for (String name : names)
+        {
+            LatencyHistogram[] histograms = endpoints.get(name);
+            lines.add(name + " (" + histograms[Phase.TOTAL.ordinal()].getCount() + " calls)");
+            for (Phase phase : Phase.values())
+            {
+                LatencyHistogram histogram = histograms[phase.ordinal()];
+                if (histogram.getCount() > 0)
+                {
+                    lines.add(String.format("  %-7s %s", phase.name().toLowerCase(), percentiles(histogram)));
+                }
+            }
+        }
+        return lines;
+    }
+
+    // Compact single line summary per endpoint, short enough for the chat box
+    public List<String> summary()
+    {
+        List<String> names = new ArrayList<>(endpoints.keySet());
+        Collections.sort(names);
+
+        List<String> lines = new ArrayList<>();
+        for (String name : names)
+        {
+            LatencyHistogram[] histograms = endpoints.get(name);
+            lines.add(name + ": " + histograms[Phase.TOTAL.ordinal()].getCount() + " calls, total "
+                + percentiles(histograms[Phase.TOTAL.ordinal()]) + ", ttfb " + percentiles(histograms[Phase.TTFB.ordinal()])
+                + ", queue " + percentiles(histograms[Phase.QUEUE.ordinal()]));
+        }
+        return lines;
+    }
+
+    private static String percentiles(LatencyHistogram histogram)
+    {
+        return String.format("%.1f/%.1f/%.1f ms", histogram.getPercentile(50) / 1000.0,
+            histogram.getPercentile(90) / 1000.0, histogram.getPercentile(99) / 1000.0);
+    }
+
+    private LatencyHistogram[] histograms(String endpoint)
+    {
+        return endpoints.computeIfAbsent(endpoint, name -> {
+            LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+            for (int i = 0; i < histograms.length; i++)
+            {
+                histograms[i] = new LatencyHistogram();
+            }
+            return histograms;
+        });
+    }
+
+    // Timestamps of one call. OkHttp calls a listener from one thread at a time, so plain fields do.
+    private static class CallTimer extends EventListener
+    {
+        private final LatencyHistogram[] histograms;
+        private long callStart;
+        private boolean queueRecorded;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestStart;
+        private long responseBodyStart;
+        private long setupNanos;
+
+        CallTimer(LatencyHistogram[] histograms)
+        {
+            this.histograms = histograms;
+        }
+
+        @Override
+        public void callStart(Call call)
+        {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName)
+        {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> addresses)
+        {
+            setupNanos += record(Phase.DNS, dnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy)
+        {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call)
+        {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake)
+        {
+            record(Phase.TLS, secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol)
+        {
+            setupNanos += record(Phase.CONNECT, connectStart);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol, IOException e)
+        {
+            setupNanos += record(Phase.CONNECT, connectStart);
+        }
+
+        @Override
+        public void requestHeadersStart(Call call)
+        {
+            requestStart = System.nanoTime();
+            // A retried or redirected call writes headers again, only the first wait counts
+            if (!queueRecorded)
+            {
+                queueRecorded = true;
+                histograms[Phase.QUEUE.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(requestStart - callStart - setupNanos));
+            }
+        }
+
+        @Override
+        public void responseHeadersStart(Call call)
+        {
+            record(Phase.TTFB, requestStart);
+        }
+
+        @Override
+        public void responseBodyStart(Call call)
+        {
+            responseBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount)
+        {
+            record(Phase.BODY, responseBodyStart);
+        }
+
+        @Override
+        public void callEnd(Call call)
+        {
+            recordTotal();
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe)
+        {
+            recordTotal();
+        }
+
+        private void recordTotal()
+        {
+            record(Phase.TOTAL, callStart);
+        }
+
+        private long record(Phase phase, long start)
+        {
+            long elapsed = System.nanoTime() - start;
+            histograms[phase.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(elapsed));
+            return elapsed;
+        }
+    }
+}
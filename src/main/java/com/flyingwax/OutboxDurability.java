@@ -0,0 +1,24 @@
+package com.flyingwax;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum OutboxDurability
+{
+    // Appends land in the OS page cache; they survive a client crash but not a power loss
+    OS_BUFFERED("Survive client crash"),
+    // The journal is forced to disk about once a second
+    PERIODIC("Sync every second"),
+    // Every append is forced to disk before the event is sent
+    EVERY_EVENT("Sync every event");
+
+    private final String name;
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,387 @@
+package com.flyingwax;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Live group updates pushed by the server over Server-Sent Events on GET /v1/groups/{id}/stream.
+// Event messages carry the sync cursor as their id, so a reconnect resumes with Last-Event-ID
+// from the last event seen. Servers without the stream endpoint are long-polled through
+// /v1/groups/{id}/events?wait= instead. Everything runs on one plugin-owned thread so a
+// connection held open for minutes never takes a thread from the REST dispatcher.
+@Slf4j
+public class PushChannel
+{
+    public interface Listener
+    {
+        // New group events, oldest first, and the cursor to persist after them (may be null)
+        void onEvents(List<GameEvent> events, String cursor);
+
+        void onPoints(PointsUpdate update);
+
+        void onTileCompleted(TileCompletion completion);
+
+        void onLiveChanged(boolean live);
+    }
+
+    private static final long MIN_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final int LONG_POLL_SECONDS = 25;
+    // How long to long-poll before trying the stream endpoint again
+    private static final long STREAM_RETRY_MS = 5 * 60_000;
+    private static final CacheControl NO_STORE = new CacheControl.Builder().noStore().build();
+
+    private final OkHttpClient client;
+    private final Listener listener;
+    private final ObjectReader eventReader;
+    private final ObjectReader pointsReader;
+    private final ObjectReader tileReader;
+    private final ObjectReader syncReader;
+
+    private volatile boolean running;
+    private volatile Thread thread;
+    private volatile Call currentCall;
+    private volatile String cursor;
+    private String serverUrl; // Guarded by this
+    private String groupId;
+
+    PushChannel(OkHttpClient client, ObjectMapper objectMapper, Listener listener)
+    {
+        this.client = client;
+        this.listener = listener;
+        this.eventReader = objectMapper.readerFor(GameEvent.class);
+        this.pointsReader = objectMapper.readerFor(PointsUpdate.class);
+        this.tileReader = objectMapper.readerFor(TileCompletion.class);
+        this.syncReader = objectMapper.readerFor(EventSyncResponse.class);
+    }
+
+    // Starts following the group from cursor, does nothing if already following it
+    public synchronized void start(String serverUrl, String groupId, String cursor)
+    {
+        if (running && serverUrl.equals(this.serverUrl) && groupId.equals(this.groupId))
+        {
+            return;
+        }
+
+        stop();
+        this.serverUrl = serverUrl;
+        this.groupId = groupId;
+        this.cursor = cursor;
+        running = true;
+        String base = serverUrl + "/v1/groups/" + groupId;
+        thread = new Thread(() -> run(base), "iron-trials-push");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop()
+    {
+        running = false;
+        Call call = currentCall;
+        if (call != null)
+        {
+            call.cancel();
+        }
+        if (thread != null)
+        {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    private void run(String base)
+    {
+        if (HttpUrl.parse(base) == null)
+        {
+            log.warn("Invalid server URL, not starting push updates: {}", base);
+            return;
+        }
+
+        boolean streamSupported = true;
+        long longPollSince = 0;
+        long backoff = MIN_BACKOFF_MS;
+
+        while (isCurrent())
+        {
+            boolean progressed = false;
+            long attemptStarted = System.currentTimeMillis();
+            try
+            {
+                if (!streamSupported && System.currentTimeMillis() - longPollSince >= STREAM_RETRY_MS)
+                {
+                    streamSupported = true;
+                }
+
+                progressed = streamSupported ? readStream(base) : longPoll(base);
+            }
+            catch (StreamUnsupportedException e)
+            {
+                log.info("Server has no push stream, falling back to long polling");
+                streamSupported = false;
+                longPollSince = System.currentTimeMillis();
+                continue;
+            }
+            catch (IOException e)
+            {
+                if (!isCurrent())
+                {
+                    break;
+                }
+                log.debug("Push connection failed: {}", e.toString());
+            }
+
+            // Waits are counted from the start of the attempt, so a long poll the server held
+            // open costs nothing extra while one it answered at once is spaced out. Jittered so
+            // a recovering server is not hit by every client at once.
+            long delay;
+            if (progressed)
+            {
+                backoff = MIN_BACKOFF_MS;
+                delay = streamSupported ? 0 : MIN_BACKOFF_MS;
+            }
+            else
+            {
+                delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+            }
+
+            long remaining = attemptStarted + delay - System.currentTimeMillis();
+            if (remaining > 0 && !sleep(remaining))
+            {
+                break;
+            }
+        }
+    }
+
+    private static boolean sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+            return true;
+        }
+        catch (InterruptedException e)
+        {
+            return false;
+        }
+    }
+
+    // Reads the stream until the server closes it. Returns whether it delivered anything
+    // or stayed up long enough to count as a working connection.
+    private boolean readStream(String base) throws IOException
+    {
+        Request.Builder request = new Request.Builder()
+            .url(base + "/stream")
+            .header("Accept", "text/event-stream")
+            .tag(String.class, HttpClient.PUSH_ENDPOINT)
+            .cacheControl(NO_STORE);
+        if (cursor != null)
+        {
+            request.header("Last-Event-ID", cursor);
+        }
+
+        long connected = System.currentTimeMillis();
+        boolean received = false;
+        Call call = client.newCall(request.build());
+        currentCall = call;
+        try (Response response = call.execute())
+        {
+            if (response.code() == 404 || response.code() == 405 || response.code() == 501)
+            {
+                throw new StreamUnsupportedException();
+            }
+            if (!response.isSuccessful() || response.body() == null)
+            {
+                throw new IOException("HTTP " + response.code());
+            }
+
+            listener.onLiveChanged(true);
+            BufferedSource source = response.body().source();
+            StringBuilder data = new StringBuilder();
+            String type = "message";
+            String id = null;
+            String line;
+            while (isCurrent() && (line = source.readUtf8Line()) != null)
+            {
+                if (line.isEmpty())
+                {
+                    // A blank line dispatches the message collected so far
+                    if (data.length() > 0)
+                    {
+                        dispatch(type, data.toString(), id);
+                        received = true;
+                    }
+                    data.setLength(0);
+                    type = "message";
+                    continue;
+                }
+
+                if (line.charAt(0) == ':')
+                {
+                    // Comment, the server sends these as heartbeats
+                    continue;
+                }
+
+                int colon = line.indexOf(':');
+                String field = colon < 0 ? line : line.substring(0, colon);
+                String value = colon < 0 ? "" : line.substring(colon + 1);
+                if (value.startsWith(" "))
+                {
+                    value = value.substring(1);
+                }
+
+                switch (field)
+                {
+                    case "id":
+                        id = value;
+                        break;
+                    case "event":
+                        type = value;
+                        break;
+                    case "data":
+                        if (data.length() > 0)
+                        {
+                            data.append('\n');
+                        }
+                        data.append(value);
+                        break;
+                    default:
+                        // "retry" and unknown fields, our own backoff decides reconnects
+                        break;
+                }
+            }
+        }
+        finally
+        {
+            currentCall = null;
+            listener.onLiveChanged(false);
+        }
+
+        return received || System.currentTimeMillis() - connected >= MIN_BACKOFF_MS * 5;
+    }
+
+    // False once stop() was called or a restart replaced this thread
+    private boolean isCurrent()
+    {
+        return running && thread == Thread.currentThread();
+    }
+
+    // Returns whether the poll delivered events or moved the cursor. A server that ignores
+    // wait answers at once with nothing new, which must not count as progress.
+    private boolean longPoll(String base) throws IOException
+    {
+        HttpUrl.Builder url = HttpUrl.get(base + "/events").newBuilder()
+            .addQueryParameter("wait", String.valueOf(LONG_POLL_SECONDS));
+        if (cursor != null)
+        {
+            url.addQueryParameter("since", cursor);
+        }
+
+        Call call = client.newCall(new Request.Builder()
+            .url(url.build())
+            .tag(String.class, HttpClient.PUSH_ENDPOINT)
+            .cacheControl(NO_STORE)
+            .get()
+            .build());
+        currentCall = call;
+        try (Response response = call.execute())
+        {
+            if (!response.isSuccessful() || response.body() == null)
+            {
+                throw new IOException("HTTP " + response.code());
+            }
+
+            EventSyncResponse sync = syncReader.readValue(response.body().byteStream());
+            List<GameEvent> events = sync.getEvents() != null ? sync.getEvents() : Collections.emptyList();
+            if (!events.isEmpty() || (sync.getCursor() != null && !sync.getCursor().equals(cursor)))
+            {
+                cursor = sync.getCursor();
+                listener.onEvents(events, cursor);
+                return true;
+            }
+            return false;
+        }
+        finally
+        {
+            currentCall = null;
+        }
+    }
+
+    private void dispatch(String type, String data, String id)
+    {
+        try
+        {
+            switch (type)
+            {
+                case "event":
+                    GameEvent event = eventReader.readValue(data);
+                    if (id != null)
+                    {
+                        cursor = id;
+                    }
+                    listener.onEvents(Collections.singletonList(event), id);
+                    break;
+                case "points":
+                    listener.onPoints(pointsReader.readValue(data));
+                    break;
+                case "tile":
+                    listener.onTileCompleted(tileReader.readValue(data));
+                    break;
+                default:
+                    log.debug("Ignoring push message of type {}", type);
+                    break;
+            }
+        }
+        catch (JsonProcessingException e)
+        {
+            log.warn("Skipping malformed push message of type {}", type, e);
+        }
+    }
+
+    private static class StreamUnsupportedException extends IOException
+    {
+    }
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class PointsUpdate
+{
+    private String playerName;
+    private int points;
+}
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+class TileCompletion
+{
+    private String playerName;
+    private String boardId;
+    private int x;
+    private int y;
+    private String completedBy;
+    private long completedAt;
+}
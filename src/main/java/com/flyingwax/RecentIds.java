@@ -0,0 +1,34 @@
+package com.flyingwax;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bounded set of recently seen event ids. Once full, the id seen least recently is forgotten,
+// so memory stays constant while duplicates, which arrive close together, are still caught.
+public class RecentIds
+{
+    private final Map<String, Boolean> ids;
+
+    public RecentIds(int capacity)
+    {
+        this.ids = new LinkedHashMap<String, Boolean>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // Returns false if the id was already seen
+    public synchronized boolean add(String id)
+    {
+        return ids.put(id, Boolean.TRUE) == null;
+    }
+
+    public synchronized boolean contains(String id)
+    {
+        return ids.get(id) != null;
+    }
+}
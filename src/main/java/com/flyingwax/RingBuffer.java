@@ -0,0 +1,67 @@
+package com.flyingwax;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Fixed-capacity buffer of the most recent items, safe for any number of writers and readers
+// without locks. Each add claims the next sequence number and overwrites the oldest slot with
+// an immutable (sequence, item) pair, so memory stays constant however many items pass
+// through. A reader only takes slots whose sequence is the one it expects at that position.
+// A slot that was overwritten meanwhile, or one whose writer has not stored it yet, is
+// skipped, so a snapshot never shows an item twice or out of order.
+public class RingBuffer<T>
+{
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final AtomicLong next = new AtomicLong();
+
+    public RingBuffer(int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(T item)
+    {
+        long sequence = next.getAndIncrement();
+        slots.set((int) (sequence % slots.length()), new Slot<>(sequence, item));
+    }
+
+    public int getCapacity()
+    {
+        return slots.length();
+    }
+
+    // The buffered items, newest first
+    public List<T> snapshot()
+    {
+        long end = next.get();
+        long start = Math.max(0, end - slots.length());
+        List<T> items = new ArrayList<>((int) (end - start));
+        for (long sequence = end - 1; sequence >= start; sequence--)
+        {
+            Slot<T> slot = slots.get((int) (sequence % slots.length()));
+            if (slot != null && slot.sequence == sequence)
+            {
+                items.add(slot.item);
+            }
+        }
+        return items;
+    }
+
+    private static class Slot<T>
+    {
+        private final long sequence;
+        private final T item;
+
+        Slot(long sequence, T item)
+        {
+            this.sequence = sequence;
+            this.item = item;
+        }
+    }
+}
@@ -28,6 +28,7 @@ public class RosterPanel extends PluginPanel
     private JPanel healthPanel; // Store reference to health panel
     private List<PlayerData> players = new ArrayList<>();
     private PlayerData selectedPlayer;
+    private static final int MAX_ACHIEVEMENTS = 5;
     
     public RosterPanel(IronTrials plugin)
     {
@@ -278,17 +279,27 @@ public class RosterPanel extends PluginPanel
         achievementsContainer.setBackground(ColorScheme.DARKER_GRAY_COLOR);
         achievementsContainer.setBorder(new EmptyBorder(0, 8, 0, 8));
         
-        // Sample achievements (we'll populate this with real data later)
-        String[] sampleAchievements = {
-            "Reached 99 Attack",
-            "Defeated Zulrah (50 KC)",
-            "Obtained Dragon Warhammer",
-            "Completed Dragon Slayer II",
-            "Achieved 2000 Total Level"
-        };
-        
-        for (String achievement : sampleAchievements) {
-            JLabel achievementLabel = new JLabel(achievement);
+        // This season's events of the player, from the plugin's event index
+        List<GameEvent> achievements = new ArrayList<>();
+        if (selectedPlayer != null)
+        {
+            GroupData groupData = plugin.getGroupData();
+            SeasonData season = groupData != null ? groupData.getCurrentSeason() : null;
+            long seasonStart = season != null ? toEpochSeconds(season.getStartDate()) : Long.MIN_VALUE;
+            achievements = plugin.queryEvents(null, selectedPlayer.getName(), seasonStart, Long.MAX_VALUE, MAX_ACHIEVEMENTS);
+        }
+
+        if (achievements.isEmpty())
+        {
+            JLabel noneLabel = new JLabel("No achievements yet");
+            noneLabel.setFont(FontManager.getRunescapeFont());
+            noneLabel.setForeground(Color.LIGHT_GRAY);
+            noneLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            achievementsContainer.add(noneLabel);
+        }
+
+        for (GameEvent achievement : achievements) {
+            JLabel achievementLabel = new JLabel(achievement.getDescription());
             achievementLabel.setFont(FontManager.getRunescapeFont());
             achievementLabel.setForeground(Color.LIGHT_GRAY);
             achievementLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -365,19 +376,15 @@ public class RosterPanel extends PluginPanel
 
     private void refreshData()
     {
-        try
-        {
-            GroupData groupData = plugin.getHttpClient().getGroupData(plugin.getConfig().serverUrl(), plugin.getConfig().remoteGroupId()).get();
+        plugin.getHttpClient().getRoster(plugin.getConfig().serverUrl(), plugin.getConfig().remoteGroupId()).thenAccept(groupData -> {
             if (groupData != null && groupData.getPlayers() != null)
             {
-                players = groupData.getPlayers();
-                updateList(players);
+                SwingUtilities.invokeLater(() -> {
+                    players = groupData.getPlayers();
+                    updateList(players);
+                });
             }
-        }
-        catch (Exception e)
-        {
-            log.error("Error refreshing data", e);
-        }
+        });
     }
     
     private JButton createSlayerAssistantButton(String text)
@@ -443,6 +450,26 @@ public class RosterPanel extends PluginPanel
         log.info("Roster panel updated successfully");
     }
 
+    // Applies a pushed points change without refetching the roster
+    public void updatePoints(String playerName, int points)
+    {
+        GroupData groupData = plugin.getGroupData();
+        if (groupData == null || groupData.getPlayers() == null)
+        {
+            return;
+        }
+
+        for (PlayerData player : groupData.getPlayers())
+        {
+            if (player.getName().equals(playerName))
+            {
+                player.setPoints(points);
+                updateList(groupData.getPlayers());
+                return;
+            }
+        }
+    }
+
     private void updateList(List<PlayerData> players)
     {
         contentPanel.removeAll();
@@ -530,6 +557,17 @@ public class RosterPanel extends PluginPanel
         return button;
     }
     
+    // Event timestamps are in seconds. The season's start date has no documented unit, so a
+    // value too large to be seconds is taken as milliseconds, and an unset one as no start.
+    private static long toEpochSeconds(long startDate)
+    {
+        if (startDate <= 0)
+        {
+            return Long.MIN_VALUE;
+        }
+        return startDate >= 100_000_000_000L ? startDate / 1000 : startDate;
+    }
+
     private JPanel createHealthPanel()
     {
         JPanel healthPanel = new JPanel();
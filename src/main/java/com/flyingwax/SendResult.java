@@ -0,0 +1,13 @@
+package com.flyingwax;
+
+// Outcome of uploading one event
+public enum SendResult
+{
+    // The server stored the event, or already had it
+    ACCEPTED,
+    // The server answered and refused this event, sending it again will not change that
+    REJECTED,
+    // Not sent or no answer (offline, circuit open, server error, deferred by the rate
+    // limiter), worth retrying later
+    FAILED
+}
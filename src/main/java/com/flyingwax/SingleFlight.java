@@ -0,0 +1,83 @@
+package com.flyingwax;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Coalesces concurrent loads of the same key: while a load is in flight every caller
+// shares it, and a successful result is reused for resultTtlMillis afterwards so a burst
+// of refresh clicks costs a single request. Null results count as failures and are not
+// reused. Callers get their own copy of the shared future, so one caller cancelling or
+// completing it cannot affect the others.
+public class SingleFlight<T>
+{
+    private final long resultTtlMillis;
+    private final Map<String, Flight<T>> flights = new HashMap<>(); // Guarded by this
+
+    public SingleFlight(long resultTtlMillis)
+    {
+        this.resultTtlMillis = resultTtlMillis;
+    }
+
+    public CompletableFuture<T> get(String key, Supplier<CompletableFuture<T>> loader)
+    {
+        Flight<T> flight;
+        boolean leader = false;
+        synchronized (this)
+        {
+            flight = flights.get(key);
+            if (flight == null || (flight.completedAt > 0 && System.currentTimeMillis() - flight.completedAt >= resultTtlMillis))
+            {
+                flight = new Flight<>();
+                flights.put(key, flight);
+                leader = true;
+            }
+        }
+
+        if (leader)
+        {
+            Flight<T> started = flight;
+            CompletableFuture<T> load;
+            try
+            {
+                load = loader.get();
+            }
+            catch (RuntimeException e)
+            {
+                // Fail the flight like an asynchronous error, or later callers would wait on it forever
+                load = CompletableFuture.failedFuture(e);
+            }
+            load.whenComplete((value, ex) -> {
+                synchronized (this)
+                {
+                    if (ex != null || value == null)
+                    {
+                        flights.remove(key, started);
+                    }
+                    else
+                    {
+                        started.completedAt = System.currentTimeMillis();
+                    }
+                }
+
+                if (ex != null)
+                {
+                    started.future.completeExceptionally(ex);
+                }
+                else
+                {
+                    started.future.complete(value);
+                }
+            });
+        }
+
+        return flight.future.copy();
+    }
+
+    private static class Flight<T>
+    {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private long completedAt; // Guarded by the SingleFlight, 0 while in flight
+    }
+}
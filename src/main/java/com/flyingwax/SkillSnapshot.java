@@ -0,0 +1,44 @@
+package com.flyingwax;
+
+import net.runelite.api.Skill;
+
+import java.util.Arrays;
+
+// Last known real level and experience of every skill, indexed by Skill.ordinal().
+// Only used on the client thread, so no synchronization is needed.
+public class SkillSnapshot
+{
+    private final int[] levels = new int[Skill.values().length];
+    private final int[] experience = new int[Skill.values().length];
+
+    // Bulk copy of the client's values, e.g. getRealSkillLevels() and getSkillExperiences() on login
+    public void seed(int[] realLevels, int[] skillExperience)
+    {
+        System.arraycopy(realLevels, 0, levels, 0, Math.min(realLevels.length, levels.length));
+        System.arraycopy(skillExperience, 0, experience, 0, Math.min(skillExperience.length, experience.length));
+    }
+
+    public void reset()
+    {
+        Arrays.fill(levels, 0);
+        Arrays.fill(experience, 0);
+    }
+
+    // Stores the new level and returns the previous one, or 0 if it was not known yet
+    public int update(Skill skill, int level)
+    {
+        int index = skill.ordinal();
+        int previous = levels[index];
+        levels[index] = level;
+        return previous;
+    }
+
+    // Stores the new experience and returns the gain, or 0 if the skill was not known yet
+    public int updateXp(Skill skill, int xp)
+    {
+        int index = skill.ordinal();
+        int previous = experience[index];
+        experience[index] = xp;
+        return previous > 0 ? Math.max(0, xp - previous) : 0;
+    }
+}
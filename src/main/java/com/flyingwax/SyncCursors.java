@@ -0,0 +1,98 @@
+package com.flyingwax;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+// Event sync cursors by server and group. A cursor moves with every synced batch, so it is
+// kept in memory and only written to disk by flush(), which runs periodically and on
+// shutdown. Like the milestone cache the file is written to a temporary file and moved into
+// place. A lost update only means the next sync fetches a few events again, which are
+// deduplicated by id.
+@Slf4j
+public class SyncCursors
+{
+    private static final TypeReference<Map<String, String>> CURSORS_TYPE = new TypeReference<Map<String, String>>() {};
+
+    private final File file;
+    private final ObjectMapper objectMapper;
+    private final Map<String, String> cursors = new HashMap<>(); // Guarded by this
+    private boolean dirty;
+
+    public SyncCursors(File file, ObjectMapper objectMapper)
+    {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    public synchronized void load()
+    {
+        if (!file.exists())
+        {
+            return;
+        }
+
+        try
+        {
+            Map<String, String> stored = objectMapper.readValue(file, CURSORS_TYPE);
+            if (stored != null)
+            {
+                cursors.putAll(stored);
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Ignoring unreadable sync cursors {}, syncing from the start: {}", file, e.getMessage());
+        }
+    }
+
+    // The cursor to sync serverUrl's group from, or null to start from the beginning
+    public synchronized String get(String serverUrl, String groupId)
+    {
+        return cursors.get(key(serverUrl, groupId));
+    }
+
+    public synchronized void put(String serverUrl, String groupId, String cursor)
+    {
+        if (cursor != null && !cursor.equals(cursors.put(key(serverUrl, groupId), cursor)))
+        {
+            dirty = true;
+        }
+    }
+
+    // Writes the cursors if any changed since the last flush
+    public synchronized void flush()
+    {
+        if (!dirty)
+        {
+            return;
+        }
+
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(file.getName() + ".tmp");
+        try
+        {
+            Files.createDirectories(target.getParent());
+            objectMapper.writeValue(temp.toFile(), cursors);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to save sync cursors: {}", e.getMessage());
+        }
+    }
+
+    private static String key(String serverUrl, String groupId)
+    {
+        return serverUrl + "#" + groupId;
+    }
+}
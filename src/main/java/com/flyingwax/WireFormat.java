@@ -0,0 +1,63 @@
+package com.flyingwax;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Body encodings the client can negotiate with the server. Binary formats are offered with
+// JSON as a lower-priority alternative, and responses are always decoded by their Content-Type,
+// so a server that only speaks JSON keeps working.
+@Getter
+@AllArgsConstructor
+public enum WireFormat
+{
+    JSON("JSON", "application/json"),
+    SMILE("Smile (binary JSON)", "application/x-jackson-smile"),
+    CBOR("CBOR", "application/cbor");
+
+    private final String name;
+    private final String mediaType;
+
+    public ObjectMapper createMapper()
+    {
+        switch (this)
+        {
+            case SMILE:
+                return new ObjectMapper(new SmileFactory());
+            case CBOR:
+                return new ObjectMapper(new CBORFactory());
+            default:
+                return new ObjectMapper();
+        }
+    }
+
+    // Accept header value preferring this format
+    public String getAccept()
+    {
+        return this == JSON ? mediaType : mediaType + ", " + JSON.mediaType + ";q=0.5";
+    }
+
+    // The format of a Content-Type header value, JSON if it is missing or unknown
+    public static WireFormat fromContentType(String contentType)
+    {
+        if (contentType != null)
+        {
+            for (WireFormat format : values())
+            {
+                if (contentType.regionMatches(true, 0, format.mediaType, 0, format.mediaType.length()))
+                {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,28 @@
+package com.flyingwax;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class XpSummary
+{
+    private String playerName;
+    private long from;
+    private long to;
+    private List<SkillXp> skills;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class SkillXp
+    {
+        private String skill;
+        private long gained;
+        private long xpPerHour;
+        private long sessionXp;
+    }
+}
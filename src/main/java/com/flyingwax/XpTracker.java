@@ -0,0 +1,112 @@
+package com.flyingwax;
+
+import net.runelite.api.Skill;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Rolling per-skill XP rates. XP gains are added to one-minute buckets in a ring covering
+// the last hour, stored slot-major in a flat long[]. Each skill also keeps the sum of its
+// live buckets, so XP/hr and session totals are O(1) reads; expired buckets are subtracted
+// from those sums as time moves forward.
+public class XpTracker
+{
+    private static final int BUCKETS = 60;
+    private static final long BUCKET_MILLIS = 60_000;
+    private static final long WINDOW_MILLIS = BUCKETS * BUCKET_MILLIS;
+
+    private final Skill[] skills = Skill.values();
+    private final long[] buckets = new long[BUCKETS * skills.length];
+    private final long[] windowTotals = new long[skills.length];
+    private final long[] sessionTotals = new long[skills.length];
+    // XP gained since the last summary was taken
+    private final long[] pendingTotals = new long[skills.length];
+
+    private long currentBucket = -1;
+    private long sessionStart;
+    private long lastSummary;
+
+    public XpTracker(long now)
+    {
+        reset(now);
+    }
+
+    public synchronized void reset(long now)
+    {
+        Arrays.fill(buckets, 0);
+        Arrays.fill(windowTotals, 0);
+        Arrays.fill(sessionTotals, 0);
+        Arrays.fill(pendingTotals, 0);
+        currentBucket = now / BUCKET_MILLIS;
+        sessionStart = now;
+        lastSummary = now;
+    }
+
+    public synchronized void record(Skill skill, long gained, long now)
+    {
+        if (gained <= 0)
+        {
+            return;
+        }
+
+        advance(now);
+        int index = skill.ordinal();
+        buckets[(int) (currentBucket % BUCKETS) * skills.length + index] += gained;
+        windowTotals[index] += gained;
+        sessionTotals[index] += gained;
+        pendingTotals[index] += gained;
+    }
+
+    public synchronized long getXpPerHour(Skill skill, long now)
+    {
+        advance(now);
+        // Extrapolate from at least one bucket so the first drop of a session is not inflated
+        long span = Math.max(BUCKET_MILLIS, Math.min(WINDOW_MILLIS, now - sessionStart));
+        return windowTotals[skill.ordinal()] * 3_600_000L / span;
+    }
+
+    public synchronized long getSessionXp(Skill skill)
+    {
+        return sessionTotals[skill.ordinal()];
+    }
+
+    // Returns the skills that gained XP since the previous call, or null if none did
+    public synchronized XpSummary takeSummary(String playerName, long now)
+    {
+        List<XpSummary.SkillXp> gains = new ArrayList<>();
+        for (int i = 0; i < skills.length; i++)
+        {
+            if (pendingTotals[i] > 0)
+            {
+                gains.add(new XpSummary.SkillXp(skills[i].getName(), pendingTotals[i],
+                    getXpPerHour(skills[i], now), sessionTotals[i]));
+                pendingTotals[i] = 0;
+            }
+        }
+
+        long from = lastSummary;
+        lastSummary = now;
+        return gains.isEmpty() ? null : new XpSummary(playerName, from, now, gains);
+    }
+
+    // Moves the ring forward to now, clearing every bucket that fell out of the window
+    private void advance(long now)
+    {
+        long bucket = now / BUCKET_MILLIS;
+        long steps = Math.min(bucket - currentBucket, BUCKETS);
+        for (long step = 1; step <= steps; step++)
+        {
+            int base = (int) ((currentBucket + step) % BUCKETS) * skills.length;
+            for (int i = 0; i < skills.length; i++)
+            {
+                windowTotals[i] -= buckets[base + i];
+                buckets[base + i] = 0;
+            }
+        }
+        if (bucket > currentBucket)
+        {
+            currentBucket = bucket;
+        }
+    }
+}
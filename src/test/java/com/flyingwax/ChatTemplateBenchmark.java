@@ -0,0 +1,191 @@
+package com.flyingwax;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares ChatTemplateMatcher against the indexOf based extract methods it replaced,
+// using the recorded game messages in chat-corpus.txt. Run the main method directly.
+public class ChatTemplateBenchmark
+{
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 100_000;
+
+    public static void main(String[] args) throws Exception
+    {
+        List<String> corpus = loadCorpus();
+        System.out.println("Corpus: " + corpus.size() + " messages");
+
+        ChatTemplateMatcher matcher = ChatTemplateMatcher.defaults();
+        ChatMatch match = new ChatMatch();
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+        {
+            sink += runTemplates(corpus, matcher, match);
+            sink += runLegacy(corpus);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++)
+        {
+            sink += runTemplates(corpus, matcher, match);
+        }
+        long templateNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++)
+        {
+            sink += runLegacy(corpus);
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        long messages = (long) MEASURED_ROUNDS * corpus.size();
+        System.out.printf("Templates: %.1f ns/message%n", templateNanos / (double) messages);
+        System.out.printf("Legacy:    %.1f ns/message%n", legacyNanos / (double) messages);
+        System.out.println("(sink " + sink + ")");
+    }
+
+    private static List<String> loadCorpus() throws Exception
+    {
+        List<String> corpus = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            ChatTemplateBenchmark.class.getResourceAsStream("chat-corpus.txt"), StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (!line.isEmpty())
+                {
+                    corpus.add(line);
+                }
+            }
+        }
+        return corpus;
+    }
+
+    // Matches and extracts the fields a capture would use, like onChatMessage does
+    private static long runTemplates(List<String> corpus, ChatTemplateMatcher matcher, ChatMatch match)
+    {
+        long found = 0;
+        for (String message : corpus)
+        {
+            if (matcher.match(message, match))
+            {
+                found += match.getNumber("n") + match.getKind().ordinal();
+                if (match.hasField("item"))
+                {
+                    found += match.getText("item").length();
+                }
+            }
+        }
+        return found;
+    }
+
+    private static long runLegacy(List<String> corpus)
+    {
+        long found = 0;
+        for (String message : corpus)
+        {
+            if (message.contains("Congratulations! You have completed") ||
+                message.contains("You have completed") && message.contains("quest"))
+            {
+                String quest = extractQuestName(message);
+                found += quest != null ? quest.length() : 0;
+            }
+            if (message.contains("Your kill count is:"))
+            {
+                found += extractKillCount(message);
+            }
+            if (message.contains("You have received a") ||
+                message.contains("You received") ||
+                message.contains("You got"))
+            {
+                String item = extractItemName(message);
+                found += item != null ? item.length() : 0;
+            }
+            if (message.contains("You have died") || message.contains("Oh dear, you are dead"))
+            {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    // The extract methods below are the pre-template implementations, kept as the baseline
+
+    private static String extractQuestName(String message)
+    {
+        if (message.contains("Congratulations! You have completed"))
+        {
+            int start = message.indexOf("Congratulations! You have completed") + 33;
+            int end = message.indexOf(".", start);
+            if (end != -1)
+            {
+                return message.substring(start, end).trim();
+            }
+        }
+        else if (message.contains("You have completed") && message.contains("quest"))
+        {
+            int start = message.indexOf("You have completed") + 18;
+            int end = message.indexOf("quest", start);
+            if (end != -1)
+            {
+                return message.substring(start, end).trim();
+            }
+        }
+        return null;
+    }
+
+    private static int extractKillCount(String message)
+    {
+        try
+        {
+            String[] parts = message.split(":");
+            if (parts.length > 1)
+            {
+                String numberPart = parts[1].replaceAll("[^0-9]", "");
+                return Integer.parseInt(numberPart);
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            return 0;
+        }
+        return 0;
+    }
+
+    private static String extractItemName(String message)
+    {
+        if (message.contains("You have received a"))
+        {
+            int start = message.indexOf("You have received a") + 19;
+            int end = message.indexOf(".", start);
+            if (end != -1)
+            {
+                return message.substring(start, end).trim();
+            }
+        }
+        else if (message.contains("You received"))
+        {
+            int start = message.indexOf("You received") + 12;
+            int end = message.indexOf(".", start);
+            if (end != -1)
+            {
+                return message.substring(start, end).trim();
+            }
+        }
+        else if (message.contains("You got"))
+        {
+            int start = message.indexOf("You got") + 7;
+            int end = message.indexOf(".", start);
+            if (end != -1)
+            {
+                return message.substring(start, end).trim();
+            }
+        }
+        return null;
+    }
+}
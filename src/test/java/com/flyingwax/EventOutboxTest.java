@@ -0,0 +1,74 @@
+package com.flyingwax;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventOutboxTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Compacting into a reused journal with nothing pending must not bring back the events
+    // its older generation still holds
+    @Test
+    public void fullyAckedOutboxStaysEmptyAfterReopen() throws IOException
+    {
+        File directory = folder.getRoot();
+        File first = new File(directory, "outbox-0.journal");
+        File second = new File(directory, "outbox-1.journal");
+
+        EventOutbox outbox = new EventOutbox(directory, objectMapper, OutboxDurability.OS_BUFFERED);
+        outbox.open();
+
+        // Still pending at the first compaction, so it stays behind in the first journal
+        long held = outbox.append(event("held"));
+        while (generation(second) != 2)
+        {
+            outbox.ack(outbox.append(event("first")));
+        }
+        outbox.ack(held);
+
+        // The second compaction reuses the first journal with nothing pending
+        while (generation(first) != 3)
+        {
+            outbox.ack(outbox.append(event("second")));
+        }
+        assertEquals(0, outbox.getPendingCount());
+        outbox.close();
+
+        EventOutbox reopened = new EventOutbox(directory, objectMapper, OutboxDurability.OS_BUFFERED);
+        reopened.open();
+        assertEquals(0, reopened.getPendingCount());
+        reopened.close();
+    }
+
+    private static GameEvent event(String description)
+    {
+        GameEvent event = new GameEvent();
+        event.setKind(EventKind.LEVEL_UP);
+        event.setDescription(description);
+        return event;
+    }
+
+    private static long generation(File journal) throws IOException
+    {
+        if (journal.length() < 8)
+        {
+            return 0;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(journal, "r"))
+        {
+            return file.readLong();
+        }
+    }
+}
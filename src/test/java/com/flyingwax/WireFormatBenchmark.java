@@ -0,0 +1,107 @@
+package com.flyingwax;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Compares payload size and encode/decode time of each WireFormat for a group snapshot with
+// a long event history, an event batch and a set of bingo boards. Run the main method directly.
+public class WireFormatBenchmark
+{
+    private static final int PLAYERS = 10;
+    private static final int EVENTS = 500;
+    private static final int BOARDS = 10;
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 5_000;
+
+    public static void main(String[] args) throws Exception
+    {
+        GroupData group = createGroup();
+        List<GameEvent> batch = group.getRecentEvents().subList(0, 20);
+        List<BingoData> boards = createBoards();
+
+        System.out.printf("%-22s %-10s %10s %12s %12s%n", "Payload", "Format", "Bytes", "Encode us", "Decode us");
+        for (WireFormat format : WireFormat.values())
+        {
+            ObjectMapper mapper = format.createMapper();
+            run("GroupData (" + EVENTS + " events)", format, mapper, group, mapper.readerFor(GroupData.class));
+            run("Event batch (20)", format, mapper, batch,
+                mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, GameEvent.class)));
+            run("Bingo (" + BOARDS + " boards)", format, mapper, boards,
+                mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, BingoData.class)));
+        }
+    }
+
+    private static void run(String payload, WireFormat format, ObjectMapper mapper, Object value, ObjectReader reader) throws Exception
+    {
+        byte[] encoded = mapper.writeValueAsBytes(value);
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+        {
+            sink += mapper.writeValueAsBytes(value).length;
+            sink += reader.readValue(encoded).hashCode();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++)
+        {
+            sink += mapper.writeValueAsBytes(value).length;
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++)
+        {
+            sink += reader.readValue(encoded).hashCode();
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        System.out.printf("%-22s %-10s %10d %12.1f %12.1f   (sink %d)%n", payload, format.name(), encoded.length,
+            encodeNanos / 1000.0 / MEASURED_ROUNDS, decodeNanos / 1000.0 / MEASURED_ROUNDS, sink & 0xf);
+    }
+
+    private static GroupData createGroup()
+    {
+        String[] names = new String[PLAYERS];
+        List<PlayerData> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++)
+        {
+            names[i] = "Ironman " + i;
+            players.add(new PlayerData(names[i], 100 + i * 37, i % 3 == 0, "alive", 1200 + i * 50, 150 + i));
+        }
+
+        EventKind[] kinds = EventKind.values();
+        List<GameEvent> events = new ArrayList<>();
+        long timestamp = 1_735_776_000L;
+        for (int i = 0; i < EVENTS; i++)
+        {
+            EventKind kind = kinds[i % kinds.length];
+            events.add(new GameEvent("evt-" + i, names[i % PLAYERS], kind, kind.name().toLowerCase() + " number " + i,
+                timestamp + i * 60L, (i % 7) * 5, EventMetadata.ofXp(i * 1337)));
+        }
+
+        LivesData lives = new LivesData(3, 5, Collections.singletonList("Ironman 4"));
+        SeasonData season = new SeasonData("s1", "Season One", "active", timestamp, timestamp + 7_776_000L);
+        return new GroupData("test-group", "Test Group", lives, players, season, events);
+    }
+
+    private static List<BingoData> createBoards()
+    {
+        List<BingoData> boards = new ArrayList<>();
+        for (int b = 0; b < BOARDS; b++)
+        {
+            List<BingoTile> tiles = new ArrayList<>();
+            for (int i = 0; i < 25; i++)
+            {
+                boolean completed = (i + b) % 4 == 0;
+                tiles.add(new BingoTile(i % 5, i / 5, "Obtain item number " + i, 10 + i, completed,
+                    completed ? "Ironman " + b : null, completed ? 1_735_776_000L + i : 0));
+            }
+            boards.add(new BingoData("board-" + b, "Season One Bingo", "Ironman " + b, tiles, 5, "active"));
+        }
+        return boards;
+    }
+}